@@ -0,0 +1,54 @@
+/**
+ * Measures how many bytes MyPlayer's search and Game's board copy allocate on the current thread. The hot paths are
+ * expected to allocate nothing per position, so the bytes per node printed here should be 0 (a handful of bytes per
+ * run can come from the JVM itself).
+ *
+ * Run with: java AllocationCheck [depth]
+ */
+
+import java.lang.management.ManagementFactory;
+
+public class AllocationCheck {
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        Board gameBoard = new BitBoard();
+        gameBoard.move(1, 3);
+        gameBoard.move(2, 3);
+        gameBoard.move(1, 2);
+        Board copy = new BitBoard();
+
+        MyPlayer player = new MyPlayer();
+        player.setPlayerNumber(2);
+
+        // Warm up so that one-time allocations (the getBoard() view, class loading) are not counted
+        for (int i=0; i<3; i++) {
+            copy.copyFrom(gameBoard);
+            player.searchValue(copy, depth, 2);
+        }
+
+        player.nodesSearched = 0;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        copy.copyFrom(gameBoard);
+        player.searchValue(copy, depth, 2);
+        long searchBytes = threads.getThreadAllocatedBytes(threadId) - before;
+        long nodes = player.nodesSearched;
+
+        int copies = 1000000;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i=0; i<copies; i++) {
+            copy.copyFrom(gameBoard);
+        }
+        long copyBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.println("Search depth " + depth + ": " + nodes + " nodes, " + searchBytes + " bytes allocated, "
+                + ((double) searchBytes / nodes) + " bytes/node");
+        System.out.println("Board.copyFrom: " + copies + " copies, " + copyBytes + " bytes allocated, "
+                + ((double) copyBytes / copies) + " bytes/copy");
+    }
+}
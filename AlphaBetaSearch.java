@@ -0,0 +1,574 @@
+/**
+ * Alpha-beta version of MyPlayer's negamax search. It visits the same positions in the same depth and scores them
+ * with the same heuristic, but stops searching a position as soon as one reply proves it is worse than a move that
+ * was already found. To make those cutoffs happen early, moves are tried center first (3, 2, 4, 1, 5, 0, 6), with
+ * killer moves (moves that caused a cutoff at the same ply) and the history table (how often a move caused a cutoff
+ * anywhere) moved to the front.
+ *
+ * The top level is searched so that ties are broken exactly like MyPlayer.search(): among equally valued moves the
+ * lowest column wins. It therefore returns the same move and value as the plain negamax search.
+ *
+ * An optional TranspositionTable lets the search reuse the result of a position that was already reached through a
+ * different move order. Stored results may come from a deeper search than the one being run, so with a table the
+ * chosen move can differ from (and is usually better than) the plain negamax result.
+ *
+ * searchIterative() runs the search again and again, one move deeper each time, until a wall-clock budget runs out.
+ * The deadline is checked every DEADLINE_CHECK_INTERVAL nodes; when it passes, the running iteration is abandoned and
+ * the best move of the last completed depth is returned. Each iteration tries the principal variation (the line of
+ * best moves) of the previous one first, which makes the deeper iterations cheaper.
+ *
+ * With setSymmetryReduction(true) the search treats a position and its mirror image as the same position: on a
+ * symmetric board only the left half of the top-level moves (and the center) is searched, and the transposition
+ * table is keyed by Board.getCanonicalHash(), so a position and its mirror image share one entry. MyPlayer.heuristic()
+ * is not exactly mirror-symmetric, so this can change the chosen move slightly; IncrementalEvaluator is symmetric.
+ *
+ * Leaves are scored with MyPlayer.heuristic(), or, with setIncrementalEvaluation(true), with an IncrementalEvaluator
+ * that is attached to the board for the duration of a search and updated on every move and undo. On a BitBoard the
+ * incremental evaluation goes through a BatchEvaluator instead: at a frontier node (maxDepth 0, where every child is a
+ * leaf) all children are scored in one call without playing their moves, and the board needs no listener. The values,
+ * and so the result and the node counts, are the same as with the IncrementalEvaluator.
+ *
+ * All buffers are allocated up front, so searching does not allocate. An instance keeps killer and history state
+ * between searches and must only be used by one thread at a time.
+ */
+
+import java.util.Arrays;
+
+public class AlphaBetaSearch {
+
+    // Values used as "minus infinity" and "plus infinity"; every real score lies between -1.0 and 1.0
+    private static final double MIN_VALUE = -2.0;
+    private static final double MAX_VALUE = 2.0;
+
+    private static final int MAX_PLY = Board.BOARD_SIZE * Board.BOARD_SIZE + 1;
+    private static final int KILLER_BONUS = 1 << 30;
+    private static final int PV_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int TABLE_MOVE_SCORE = Integer.MAX_VALUE - 1;
+
+    // Nodes searched between two reads of the clock
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    // Columns ordered from the center outwards
+    static final int[] CENTER_ORDER = centerOrder();
+
+    private final MyPlayer evaluator;
+    private TranspositionTable table;
+    private final long[] tableEntry = new long[2];
+    private IncrementalEvaluator incremental;
+    private BatchEvaluator batch;
+    private boolean symmetryReduction;
+
+    // Board of the running search if its frontier nodes are scored by batch, otherwise null, and the children's values
+    private BitBoard batchBoard;
+    private final double[] childValues = new double[Board.BOARD_SIZE];
+
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[3][Board.BOARD_SIZE];
+    private final int[][] moveBuffer = new int[MAX_PLY][Board.BOARD_SIZE];
+    private final int[][] orderBuffer = new int[MAX_PLY][Board.BOARD_SIZE];
+
+    // Principal variation of the running iteration (triangular table) and of the last completed one
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final int[] previousPv = new int[MAX_PLY];
+    private int previousPvLength;
+    private boolean followingPv;
+
+    // Time control; stopRequested can be set from another thread
+    private long deadline;
+    private int deadlineCountdown;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+
+    // Statistics for the last search
+    long nodes;
+    long leaves;
+    long cutoffs;
+    long tableProbes;
+    long tableHits;
+
+    // Best column and value found by the last search, and the deepest depth that was searched completely
+    int bestColumn;
+    double lastValue;
+    int completedDepth;
+
+    public AlphaBetaSearch(MyPlayer evaluator) {
+        this.evaluator = evaluator;
+        this.clearHeuristics();
+    }
+
+    /**
+     * Sets the transposition table used by the search, or null to search without one.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Scores leaves with an IncrementalEvaluator (true) or with MyPlayer.heuristic() (false, the default). Searches on
+     * a BitBoard then score frontier nodes with BatchEvaluator.create().
+     */
+    public void setIncrementalEvaluation(boolean enabled) {
+        this.incremental = enabled ? new IncrementalEvaluator() : null;
+        this.batch = enabled ? BatchEvaluator.create() : null;
+    }
+
+    /*
+     * Replaces the batch evaluator chosen by setIncrementalEvaluation(true), or with null scores every leaf with the
+     * IncrementalEvaluator. Used to compare the implementations.
+     */
+    void setBatchEvaluator(BatchEvaluator batch) {
+        this.batch = this.incremental != null ? batch : null;
+    }
+
+    /**
+     * Makes the search skip mirrored moves at the top level of a symmetric position and share transposition table
+     * entries between mirrored positions (false by default).
+     */
+    public void setSymmetryReduction(boolean enabled) {
+        this.symmetryReduction = enabled;
+    }
+
+    /**
+     * Asks a running search to stop at once. Can be called from any thread; the request is cleared when search() or
+     * searchIterative() is called next. A search that is stopped before it completed a depth leaves completedDepth at
+     * -1.
+     */
+    public void stop() {
+        this.stopRequested = true;
+    }
+
+    /*
+     * Forgets an earlier stop(). The public search methods call it on entry. A caller that runs a search on another
+     * thread calls it before handing the search over and starts it with searchToDepth() or the package-private
+     * searchIterative(), which do not clear the request, so that a stop() that arrives before the search has started
+     * still ends it.
+     */
+    void clearStop() {
+        this.stopRequested = false;
+    }
+
+    /*
+     * Returns the move at the given ply of the principal variation of the last completed depth, or -1 if the
+     * variation is shorter (it ends where the transposition table cut the search off). Ply 0 is the best move.
+     */
+    int getPvMove(int ply) {
+        return ply < this.previousPvLength ? this.previousPv[ply] : -1;
+    }
+
+    /**
+     * Forgets the killer moves and history scores collected by earlier searches.
+     */
+    public void clearHeuristics() {
+        for (int[] killer : this.killers) {
+            killer[0] = -1;
+            killer[1] = -1;
+        }
+        for (int[] scores : this.history) {
+            Arrays.fill(scores, 0);
+        }
+    }
+
+    /*
+     * Searches maxDepth moves past the next one (the same depth as MyPlayer.search()) and returns the value of the
+     * best move for playerNumber. The best move itself is stored in bestColumn.
+     */
+    public double search(Board gameBoard, int maxDepth, int playerNumber) {
+        this.clearStop();
+        return this.searchToDepth(gameBoard, maxDepth, playerNumber);
+    }
+
+    /*
+     * Same as search(), but ends at once if stop() was called since the last clearStop().
+     */
+    double searchToDepth(Board gameBoard, int maxDepth, int playerNumber) {
+        this.startSearch(gameBoard, Long.MAX_VALUE);
+        double bestValue = this.searchRoot(gameBoard, maxDepth, playerNumber);
+        this.completedDepth = this.aborted ? -1 : maxDepth;
+        if (!this.aborted) {
+            this.previousPvLength = this.pvLength[0];
+            System.arraycopy(this.pvTable[0], 0, this.previousPv, 0, this.previousPvLength);
+        }
+        this.lastValue = bestValue;
+        this.finishSearch(gameBoard);
+        return bestValue;
+    }
+
+    /*
+     * Searches depth 0, 1, 2, ... up to maxDepth (or until every empty slot is filled) and stops when budgetNanos
+     * have passed (Long.MAX_VALUE for no limit). Depth 0 is always completed. Returns the value of the best move of
+     * the deepest completed depth; the move is stored in bestColumn and the depth in completedDepth.
+     */
+    public double searchIterative(Board gameBoard, int maxDepth, int playerNumber, long budgetNanos) {
+        this.clearStop();
+        return this.searchIterative(gameBoard, maxDepth, playerNumber, budgetNanos, 0);
+    }
+
+    /*
+     * Same as searchIterative(), but starts at firstDepth and then goes up in steps of one. Helper threads of a
+     * parallel search start at different depths so that they do not all search the same tree at the same time.
+     * Unlike the public method it ends at once if stop() was called since the last clearStop().
+     */
+    double searchIterative(Board gameBoard, int maxDepth, int playerNumber, long budgetNanos, int firstDepth) {
+        this.startSearch(gameBoard, budgetNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + budgetNanos);
+        maxDepth = Math.min(maxDepth, countEmptySlots(gameBoard) - 1);
+
+        int bestMove = -1;
+        double bestValue = 0.0;
+        for (int depth=Math.min(firstDepth, maxDepth); depth<=maxDepth; depth++) {
+            double value = this.searchRoot(gameBoard, depth, playerNumber);
+            if (this.aborted) {
+                break;
+            }
+
+            bestMove = this.bestColumn;
+            bestValue = value;
+            this.completedDepth = depth;
+            this.previousPvLength = this.pvLength[0];
+            System.arraycopy(this.pvTable[0], 0, this.previousPv, 0, this.previousPvLength);
+
+            if (value >= 1.0 || value <= -1.0) {
+                // A forced win or loss inside the horizon does not change with more depth
+                break;
+            }
+        }
+
+        this.bestColumn = bestMove;
+        this.lastValue = bestValue;
+        this.finishSearch(gameBoard);
+        return bestValue;
+    }
+
+    private void startSearch(Board gameBoard, long deadline) {
+        this.nodes = 0;
+        this.leaves = 0;
+        this.cutoffs = 0;
+        this.tableProbes = 0;
+        this.tableHits = 0;
+        this.deadline = deadline;
+        this.deadlineCountdown = DEADLINE_CHECK_INTERVAL;
+        this.aborted = false;
+        this.completedDepth = -1;
+        this.previousPvLength = 0;
+        this.batchBoard = this.batch != null && gameBoard instanceof BitBoard ? (BitBoard) gameBoard : null;
+        if (this.incremental != null && this.batchBoard == null) {
+            this.incremental.reset(gameBoard);
+            gameBoard.setListener(this.incremental);
+        }
+    }
+
+    private void finishSearch(Board gameBoard) {
+        if (this.incremental != null && this.batchBoard == null) {
+            gameBoard.setListener(null);
+        }
+        if (this.table != null) {
+            this.table.recordProbes(this.tableProbes, this.tableHits);
+        }
+    }
+
+    /*
+     * Searches every move at the top level to maxDepth and returns the best value; the move is stored in bestColumn.
+     * If the search is aborted the returned value and move are meaningless.
+     */
+    private double searchRoot(Board gameBoard, int maxDepth, int playerNumber) {
+        this.pvLength[0] = 0;
+        boolean onPv = this.previousPvLength > 0;
+        int pvMove = onPv ? this.previousPv[0] : -1;
+
+        int[] moves = this.moveBuffer[0];
+        int count = this.orderMoves(gameBoard, 0, playerNumber, -1, pvMove);
+
+        // On a symmetric board column i and its mirror column have the same value, keep the lower one
+        boolean skipMirrored = this.symmetryReduction && gameBoard.isSymmetric();
+        int terminal = maxDepth == 0 ? this.evaluateChildren(playerNumber) : -1;
+
+        int bestMove = -1;
+        double bestValue = MIN_VALUE;
+        for (int k=0; k<count; k++) {
+            int i = moves[k];
+            if (skipMirrored && i > Board.BOARD_SIZE - 1 - i) {
+                continue;
+            }
+
+            // A lower column only needs to tie the best value to replace it, a higher column has to beat it
+            double alpha = bestMove < 0 ? MIN_VALUE : (i < bestMove ? Math.nextDown(bestValue) : bestValue);
+            this.followingPv = onPv && i == pvMove;
+            double value = terminal >= 0
+                    ? this.batchedMove(i, terminal, 1)
+                    : this.searchMove(gameBoard, maxDepth, playerNumber, i, alpha, MAX_VALUE, 1);
+            if (this.aborted) {
+                break;
+            }
+
+            if (bestMove < 0 || value > bestValue || (value == bestValue && i < bestMove)) {
+                bestMove = i;
+                bestValue = value;
+                this.updatePv(0, i);
+            }
+        }
+
+        this.bestColumn = bestMove;
+        return bestValue;
+    }
+
+    /*
+     * Returns the value of the position for playerNumber, who is about to move. The value is exact if it lies
+     * strictly between alpha and beta; otherwise it is only a bound on the exact value.
+     */
+    private double negamax(Board gameBoard, int maxDepth, int playerNumber, double alpha, double beta, int ply) {
+        this.pvLength[ply] = ply;
+        boolean onPv = this.followingPv;
+        int pvMove = onPv && ply < this.previousPvLength ? this.previousPv[ply] : -1;
+
+        long key = 0;
+        int tableMove = -1;
+        boolean mirrored = false;
+        double originalAlpha = alpha;
+        if (this.table != null) {
+            long hash = gameBoard.getHash();
+            if (this.symmetryReduction && gameBoard.getMirrorHash() < hash) {
+                // Stored under the mirror image, so stored moves are mirrored too
+                hash = gameBoard.getMirrorHash();
+                mirrored = true;
+            }
+            key = hash ^ (playerNumber == 1 ? 0 : Zobrist.PLAYER_2_TO_MOVE);
+            long[] entry = this.tableEntry;
+            this.tableProbes++;
+            if (this.table.probe(key, entry)) {
+                this.tableHits++;
+                tableMove = TranspositionTable.getMove(entry);
+                if (mirrored) {
+                    tableMove = Board.BOARD_SIZE - 1 - tableMove;
+                }
+                if (TranspositionTable.getDepth(entry) >= maxDepth) {
+                    double score = TranspositionTable.getScore(entry);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT) {
+                        return score;
+                    } else if (bound == TranspositionTable.LOWER_BOUND && score > alpha) {
+                        alpha = score;
+                    } else if (bound == TranspositionTable.UPPER_BOUND && score < beta) {
+                        beta = score;
+                    }
+                    if (alpha >= beta) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int[] moves = this.moveBuffer[ply];
+        int count = this.orderMoves(gameBoard, ply, playerNumber, tableMove, pvMove);
+        int terminal = maxDepth == 0 ? this.evaluateChildren(playerNumber) : -1;
+
+        double bestValue = MIN_VALUE;
+        int bestMove = moves[0];
+        for (int k=0; k<count; k++) {
+            int i = moves[k];
+            this.followingPv = onPv && i == pvMove;
+            double value = terminal >= 0
+                    ? this.batchedMove(i, terminal, ply + 1)
+                    : this.searchMove(gameBoard, maxDepth, playerNumber, i, alpha, beta, ply + 1);
+            if (this.aborted) {
+                return 0.0;
+            }
+
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = i;
+            }
+            if (value > alpha) {
+                alpha = value;
+                this.updatePv(ply, i);
+            }
+            if (alpha >= beta || value >= 1.0) {
+                // Nothing can beat a win, and the opponent will never allow a move that is better than beta
+                this.cutoffs++;
+                this.storeCutoff(ply, playerNumber, i, maxDepth);
+                break;
+            }
+        }
+
+        if (this.table != null) {
+            int bound = TranspositionTable.EXACT;
+            if (bestValue <= originalAlpha) {
+                bound = TranspositionTable.UPPER_BOUND;
+            } else if (bestValue >= beta) {
+                bound = TranspositionTable.LOWER_BOUND;
+            }
+            this.table.store(key, maxDepth, bound, bestValue, mirrored ? Board.BOARD_SIZE - 1 - bestMove : bestMove);
+        }
+        return bestValue;
+    }
+
+    /*
+     * Plays column i for playerNumber and returns the value of that move for playerNumber.
+     */
+    private double searchMove(Board gameBoard, int maxDepth, int playerNumber, int i, double alpha, double beta,
+                              int childPly) {
+        if (this.checkDeadline()) {
+            return 0.0;
+        }
+
+        gameBoard.move(playerNumber, i);
+        this.nodes++;
+        this.pvLength[childPly] = childPly;
+
+        double value;
+        int gameStatus = gameBoard.checkIfGameOver(i);
+        if (gameStatus >= 0) {
+            if (gameStatus == 0) {
+                value = 0.0;
+            } else if (gameStatus == playerNumber) {
+                value = 1.0;
+            } else {
+                value = -1.0;
+            }
+        } else if (maxDepth == 0) {
+            this.leaves++;
+            value = this.incremental != null
+                    ? this.incremental.evaluate(playerNumber)
+                    : this.evaluator.heuristic(gameBoard, playerNumber);
+        } else {
+            value = -this.negamax(gameBoard, maxDepth-1, (playerNumber == 1 ? 2 : 1), -beta, -alpha, childPly);
+        }
+
+        gameBoard.undoMove(i);
+        return value;
+    }
+
+    /*
+     * Scores every child of the position at once into childValues if the search batches frontier nodes, and returns
+     * the mask of the columns that end the game; returns -1 if the children have to be searched one by one.
+     */
+    private int evaluateChildren(int playerNumber) {
+        if (this.batchBoard == null) {
+            return -1;
+        }
+        return this.batch.evaluateChildren(this.batchBoard.getPlayerTiles(playerNumber),
+                this.batchBoard.getPlayerTiles(playerNumber == 1 ? 2 : 1), this.childValues);
+    }
+
+    /*
+     * Returns the value of column i scored by evaluateChildren(), counted like a leaf searched by searchMove().
+     */
+    private double batchedMove(int i, int terminal, int childPly) {
+        if (this.checkDeadline()) {
+            return 0.0;
+        }
+        this.nodes++;
+        this.pvLength[childPly] = childPly;
+        if ((terminal & (1 << i)) == 0) {
+            this.leaves++;
+        }
+        return this.childValues[i];
+    }
+
+    /*
+     * Counts a node towards the next deadline check and returns true if the search has to stop.
+     */
+    private boolean checkDeadline() {
+        if (--this.deadlineCountdown <= 0) {
+            this.deadlineCountdown = DEADLINE_CHECK_INTERVAL;
+            if (this.stopRequested || (this.completedDepth >= 0 && System.nanoTime() > this.deadline)) {
+                this.aborted = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Fills moveBuffer[ply] with the open columns: the previous iteration's principal variation move first, then the
+     * transposition table's move, then killer moves, then by history score, then center first. Returns the number of
+     * open columns.
+     */
+    private int orderMoves(Board gameBoard, int ply, int playerNumber, int tableMove, int pvMove) {
+        int[] moves = this.moveBuffer[ply];
+        int[] order = this.orderBuffer[ply];
+        int[] killer = this.killers[ply];
+        int[] scores = this.history[playerNumber];
+
+        int count = 0;
+        for (int column : CENTER_ORDER) {
+            if (!gameBoard.isColumnOpen(column)) {
+                continue;
+            }
+
+            int score = scores[column];
+            if (column == pvMove) {
+                score = PV_MOVE_SCORE;
+            } else if (column == tableMove) {
+                score = TABLE_MOVE_SCORE;
+            } else if (column == killer[0]) {
+                score += KILLER_BONUS;
+            } else if (column == killer[1]) {
+                score += KILLER_BONUS / 2;
+            }
+
+            // Insertion sort, highest score first; equal scores keep the center-first order
+            int k = count++;
+            while (k > 0 && order[k-1] < score) {
+                order[k] = order[k-1];
+                moves[k] = moves[k-1];
+                k--;
+            }
+            order[k] = score;
+            moves[k] = column;
+        }
+        return count;
+    }
+
+    /*
+     * Makes column followed by the principal variation of the next ply the principal variation of this ply.
+     */
+    private void updatePv(int ply, int column) {
+        int[] pv = this.pvTable[ply];
+        pv[ply] = column;
+        int length = this.pvLength[ply + 1];
+        System.arraycopy(this.pvTable[ply + 1], ply + 1, pv, ply + 1, length - (ply + 1));
+        this.pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    private static int countEmptySlots(Board gameBoard) {
+        int empty = 0;
+        for (int[] row : gameBoard.getBoard()) {
+            for (int cell : row) {
+                if (cell == 0) {
+                    empty++;
+                }
+            }
+        }
+        return empty;
+    }
+
+    private void storeCutoff(int ply, int playerNumber, int column, int maxDepth) {
+        int[] killer = this.killers[ply];
+        if (killer[0] != column) {
+            killer[1] = killer[0];
+            killer[0] = column;
+        }
+
+        int[] scores = this.history[playerNumber];
+        scores[column] += (maxDepth + 1) * (maxDepth + 1);
+        if (scores[column] >= KILLER_BONUS / 4) {
+            // Keep history scores below the killer bonus
+            for (int j=0; j<scores.length; j++) {
+                scores[j] /= 2;
+            }
+        }
+    }
+
+    private static int[] centerOrder() {
+        int[] order = new int[Board.BOARD_SIZE];
+        int center = Board.BOARD_SIZE / 2;
+        order[0] = center;
+        for (int k=1, offset=1; k<order.length; offset++) {
+            order[k++] = center - offset;
+            if (k < order.length) {
+                order[k++] = center + offset;
+            }
+        }
+        return order;
+    }
+}
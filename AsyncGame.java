@@ -0,0 +1,201 @@
+/**
+ * Runs a Connect Four game between two AsyncPlayers as a state machine instead of a loop: the game asks the player to
+ * move for a move, returns, and continues on its executor when the move arrives. No thread waits while a player
+ * thinks, so a few threads can host thousands of games at once.
+ *
+ *   CREATED --start()--> WAITING_FOR_MOVE --move--> WAITING_FOR_MOVE ... --win, tie or forfeit--> FINISHED
+ *
+ * cancel() moves a game to FINISHED from any state and cancels the pending move. A move that fails, misses its
+ * deadline or is invalid forfeits the game, as in Game. Nothing is printed.
+ *
+ * Run with: java AsyncGame [games] [threads] to host that many concurrent games of MyPlayer against RandomPlayer
+ */
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AsyncGame {
+
+    public enum State { CREATED, WAITING_FOR_MOVE, FINISHED }
+
+    private final AsyncPlayer p1;
+    private final AsyncPlayer p2;
+    private final Executor executor;
+    private final Board gameBoard;
+
+    // Copy of gameBoard handed to the player to move
+    private final Board playerBoard;
+
+    private long moveNanos;
+    private State state = State.CREATED;
+    private boolean player1Turn = true;
+    private int moveCount;
+    private boolean forfeited;
+    private CompletableFuture<Integer> pendingMove;
+    private final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+
+    /**
+     * Creates a game on the standard board whose moves are processed on executor.
+     */
+    public AsyncGame(AsyncPlayer p1, AsyncPlayer p2, Executor executor) {
+        this(p1, p2, executor, BoardGeometry.STANDARD);
+    }
+
+    public AsyncGame(AsyncPlayer p1, AsyncPlayer p2, Executor executor, BoardGeometry geometry) {
+        this.p1 = p1;
+        p1.setPlayerNumber(1);
+        this.p2 = p2;
+        p2.setPlayerNumber(2);
+        this.executor = executor;
+        this.gameBoard = geometry.newBoard();
+        this.playerBoard = geometry.newBoard();
+    }
+
+    /**
+     * Gives every player at most the given time per move (0, the default, for no limit). Must be called before
+     * start().
+     */
+    public void setMoveTime(long millis) {
+        this.moveNanos = millis * 1000000L;
+    }
+
+    /**
+     * Starts the game and returns its future result: 0 for a tie, 1 if player 1 won and 2 if player 2 won. The
+     * future is cancelled if the game is cancelled.
+     *
+     * @throws IllegalStateException if the game was already started
+     */
+    public synchronized CompletableFuture<Integer> start() {
+        if (this.state != State.CREATED) {
+            throw new IllegalStateException("Game was already started");
+        }
+        this.requestMove();
+        return this.result;
+    }
+
+    /**
+     * Ends the game without a result and cancels the pending move.
+     */
+    public synchronized void cancel() {
+        if (this.state == State.FINISHED) {
+            return;
+        }
+        this.state = State.FINISHED;
+        if (this.pendingMove != null) {
+            this.pendingMove.cancel(true);
+        }
+        this.result.cancel(false);
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    /**
+     * Returns the number of valid moves played so far.
+     */
+    public synchronized int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * Returns true if the game ended because a player made an invalid move or did not move.
+     */
+    public synchronized boolean wasForfeited() {
+        return this.forfeited;
+    }
+
+    /*
+     * Hands a copy of the board to the player to move and waits, without blocking, for its move.
+     */
+    private void requestMove() {
+        this.state = State.WAITING_FOR_MOVE;
+        AsyncPlayer current = this.player1Turn ? this.p1 : this.p2;
+        this.playerBoard.copyFrom(this.gameBoard);
+        long deadline = this.moveNanos > 0 ? System.nanoTime() + this.moveNanos : Long.MAX_VALUE;
+
+        CompletableFuture<Integer> move;
+        try {
+            move = current.requestMove(this.playerBoard, deadline);
+        } catch (RuntimeException e) {
+            move = CompletableFuture.failedFuture(e);
+        }
+        this.pendingMove = move;
+        move.whenCompleteAsync((column, error) -> this.moveReceived(current, column, error), this.executor);
+    }
+
+    /*
+     * Applies a move and either asks the other player for the next one or finishes the game.
+     */
+    private synchronized void moveReceived(AsyncPlayer player, Integer column, Throwable error) {
+        if (this.state != State.WAITING_FOR_MOVE || error instanceof CancellationException) {
+            return;
+        }
+        this.pendingMove = null;
+
+        int number = player.getPlayerNumber();
+        if (error != null || column == null || !this.gameBoard.move(number, column)) {
+            this.forfeited = true;
+            this.finish(number == 1 ? 2 : 1);
+            return;
+        }
+        this.moveCount++;
+
+        int status = this.gameBoard.checkIfGameOver(column);
+        if (status >= 0) {
+            this.finish(status);
+            return;
+        }
+        this.player1Turn = !this.player1Turn;
+        this.requestMove();
+    }
+
+    private void finish(int winner) {
+        this.state = State.FINISHED;
+
+        // The player who did not move last may be pondering; the other one may still be choosing a move it missed
+        // the deadline for, so it is left alone
+        AsyncPlayer waiting = this.player1Turn ? this.p2 : this.p1;
+        if (waiting instanceof SyncPlayerAdapter && ((SyncPlayerAdapter) waiting).getPlayer() instanceof MyPlayer) {
+            ((MyPlayer) ((SyncPlayerAdapter) waiting).getPlayer()).stopPondering();
+        }
+        this.result.complete(winner);
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        // One thread drives every game; the players think on a separate pool
+        ExecutorService loop = Executors.newSingleThreadExecutor();
+        ExecutorService thinkers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        CompletableFuture<?>[] results = new CompletableFuture<?>[games];
+        int[] wins = new int[3];
+        for (int g=0; g<games; g++) {
+            MyPlayer engine = new MyPlayer();
+            engine.setVerbose(false);
+            engine.setSearchMode(MyPlayer.SearchMode.ALPHA_BETA);
+            engine.setSearchDepth(5);
+            engine.setEvaluation(MyPlayer.Evaluation.INCREMENTAL);
+            AsyncGame game = new AsyncGame(new SyncPlayerAdapter(engine, thinkers),
+                    new SyncPlayerAdapter(new RandomPlayer(g), thinkers), loop);
+            game.setMoveTime(1000);
+            results[g] = game.start().thenAccept((winner) -> {
+                synchronized (wins) {
+                    wins[winner]++;
+                }
+            });
+        }
+        CompletableFuture.allOf(results).join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        loop.shutdown();
+        thinkers.shutdown();
+
+        System.out.println("Games: " + games + " on " + threads + " threads in " + elapsed + " sec");
+        System.out.println("MyPlayer wins: " + wins[1] + ", RandomPlayer wins: " + wins[2] + ", ties: " + wins[0]);
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Non-blocking Connect Four player: requestMove() returns at once and the move arrives later through a
+ * CompletableFuture, so a game waiting for a slow player does not hold a thread. Used by AsyncGame, which hosts many
+ * games on a few threads. Synchronous players are wrapped in a SyncPlayerAdapter.
+ */
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncPlayer {
+
+    void setPlayerNumber(int number);
+
+    int getPlayerNumber();
+
+    /**
+     * Starts choosing a move on gameBoard and returns the future column. gameBoard belongs to the player until the
+     * future completes and must not be changed by it.
+     *
+     * The player should complete the future by deadlineNanos, a System.nanoTime() value (Long.MAX_VALUE for no
+     * deadline), and should stop working on the move if the future is cancelled. A future that completes
+     * exceptionally forfeits the game.
+     */
+    CompletableFuture<Integer> requestMove(Board gameBoard, long deadlineNanos);
+}
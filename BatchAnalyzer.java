@@ -0,0 +1,219 @@
+/**
+ * Analyzes a file of positions with MyPlayer's search across a thread pool and writes the best move of every
+ * position to an output file, for offline analysis of logged games and puzzle sets. Positions are streamed from a
+ * PositionStream and results are written as soon as they are ready, so memory use does not depend on the size of the
+ * file: at most a fixed window of positions per thread is in flight at a time.
+ *
+ * Results are written in input order, one tab-separated line per position:
+ *
+ *   moves, best column, value, depth, source
+ *
+ * where value is between -1.0 and 1.0 for the player to move and source is search, solver or book. Positions that
+ * cannot be analyzed get column -1, value 0.0, depth 0 and source over (the game has already ended) or invalid (a
+ * move is not a column, a column is full or moves follow the end of the game).
+ *
+ * Every thread keeps its own MyPlayer, transposition table and board for the whole run. The player's search state is
+ * cleared before every position, so the results do not depend on the number of threads or on which positions a
+ * thread searched before.
+ *
+ * Run with: java BatchAnalyzer input output [depth] [threads]
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchAnalyzer {
+
+    // Positions in flight per thread; enough to keep every thread busy while the oldest result is waited for
+    private static final int WINDOW_PER_THREAD = 64;
+
+    private final int depth;
+    private final int threads;
+    private int tableEntries = 1 << 18;
+    private SearchMetrics metrics;
+
+    /**
+     * Creates an analyzer that searches every position to the given depth on the given number of threads.
+     */
+    public BatchAnalyzer(int depth, int threads) {
+        this.depth = depth;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the number of entries of every thread's transposition table (2^18 by default).
+     */
+    public void setTableEntries(int tableEntries) {
+        this.tableEntries = tableEntries;
+    }
+
+    /**
+     * Sets the totals that the search of every position is added to, or null (the default) to keep none.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Analyzes every position of in and writes the results to out, in input order. out is not closed.
+     *
+     * @return the number of positions analyzed
+     */
+    public long analyze(PositionStream in, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker());
+        int window = this.threads * WINDOW_PER_THREAD;
+        ArrayDeque<Future<Result>> inFlight = new ArrayDeque<Future<Result>>(window);
+        StringBuilder line = new StringBuilder();
+        long written = 0;
+        try {
+            String position;
+            while ((position = in.next()) != null) {
+                if (inFlight.size() == window) {
+                    write(inFlight.poll().get(), line, out);
+                    written++;
+                }
+                final String moves = position;
+                inFlight.add(pool.submit(() -> workers.get().analyze(moves)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll().get(), line, out);
+                written++;
+            }
+            out.flush();
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Analysis of a position failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Analyzes the positions of the input file and writes the results to the output file.
+     *
+     * @return the number of positions analyzed
+     */
+    public long analyze(Path input, Path output) throws IOException {
+        try (PositionStream in = PositionStream.open(input);
+             Writer out = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+            return this.analyze(in, out);
+        }
+    }
+
+    private static void write(Result result, StringBuilder line, Writer out) throws IOException {
+        line.setLength(0);
+        line.append(result.moves).append('\t').append(result.column).append('\t').append(result.value)
+                .append('\t').append(result.depth).append('\t').append(result.source).append('\n');
+        out.append(line);
+    }
+
+    // Best move of one position
+    private static class Result {
+        final String moves;
+        final int column;
+        final double value;
+        final int depth;
+        final String source;
+
+        Result(String moves, int column, double value, int depth, String source) {
+            this.moves = moves;
+            this.column = column;
+            this.value = value;
+            this.depth = depth;
+            this.source = source;
+        }
+    }
+
+    /*
+     * Search state of one thread. The board is reused for every position: the moves are played on it, searched and
+     * taken back. The worker is its player's metrics sink, which is how the value and depth of the move are read.
+     */
+    private class Worker implements MetricsSink {
+        private final MyPlayer player;
+        private final Board board = new BitBoard();
+        private final int[] played = new int[Board.BOARD_SIZE * Board.BOARD_SIZE];
+        private MoveMetrics last;
+
+        Worker() {
+            this.player = new MyPlayer();
+            this.player.setMetricsSink(this);
+            this.player.setMetrics(BatchAnalyzer.this.metrics);
+            this.player.setSearchMode(MyPlayer.SearchMode.ALPHA_BETA);
+            this.player.setSearchDepth(BatchAnalyzer.this.depth);
+            this.player.setEvaluation(MyPlayer.Evaluation.INCREMENTAL);
+            this.player.setSymmetryReduction(true);
+            this.player.setTranspositionTable(new TranspositionTable(BatchAnalyzer.this.tableEntries,
+                    TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+        }
+
+        @Override
+        public void moveChosen(MoveMetrics metrics) {
+            this.last = metrics;
+        }
+
+        Result analyze(String moves) {
+            int count = 0;
+            int player = 1;
+            String invalid = null;
+            boolean over = false;
+            for (int k=0; k<moves.length(); k++) {
+                int column = moves.charAt(k) - '0';
+                if (over || column < 0 || column >= Board.BOARD_SIZE || !this.board.move(player, column)) {
+                    invalid = "invalid";
+                    break;
+                }
+                this.played[count++] = column;
+                over = this.board.checkIfGameOver(column) >= 0;
+                player = (player == 1 ? 2 : 1);
+            }
+
+            Result result;
+            if (invalid != null || over) {
+                result = new Result(moves, -1, 0.0, 0, invalid != null ? invalid : "over");
+            } else {
+                this.player.setPlayerNumber(player);
+                this.player.clearSearchState();
+                int column = this.player.chooseMove(this.board);
+                result = new Result(moves, column, this.last.getValue(), this.last.getDepth(),
+                        this.last.getSource().name().toLowerCase());
+            }
+
+            while (count > 0) {
+                this.board.undoMove(this.played[--count]);
+            }
+            return result;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java BatchAnalyzer input output [depth] [threads]");
+            return;
+        }
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        BatchAnalyzer analyzer = new BatchAnalyzer(depth, threads);
+        SearchMetrics metrics = new SearchMetrics();
+        analyzer.setMetrics(metrics);
+        long start = System.nanoTime();
+        long positions = analyzer.analyze(Paths.get(args[0]), Paths.get(args[1]));
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.println("Analyzed " + positions + " positions in " + elapsed + " sec ("
+                + Math.round(positions / elapsed) + " positions/sec)");
+        System.out.println(metrics.snapshot());
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Scores every child of a frontier node (a position whose children are leaves of the search) in one call, instead of
+ * playing each move on the board and evaluating the leaf one at a time. All children of a node differ from their
+ * parent by a single tile, so most of the work is shared between them.
+ *
+ * The values are exactly those of IncrementalEvaluator.evaluate() for the player who made the move, and 1.0 or 0.0
+ * where the move wins or fills the board, so a search gets the same result with either evaluator.
+ *
+ * create() picks the fastest implementation the JVM and CPU support: VectorBatchEvaluator, which scores the children
+ * in the lanes of the JDK Vector API (jdk.incubator.vector), or ScalarBatchEvaluator. The vector version lives in
+ * vector/ because it only compiles and runs with the incubator module added:
+ *
+ *   javac --add-modules jdk.incubator.vector -cp classes -d classes vector/VectorBatchEvaluator.java
+ *   java --add-modules jdk.incubator.vector -cp classes Main
+ */
+
+public interface BatchEvaluator {
+
+    /**
+     * Stores in values[j] the value for the player to move of playing column j, for every column that is not full.
+     * Returns a bit mask of the columns whose move ends the game (bit j for column j).
+     *
+     * @param mine      Tiles of the player to move, in BitBoard's layout
+     * @param theirs    Tiles of the opponent
+     * @param values    Receives one value per column; entries of full columns are left unchanged
+     */
+    int evaluateChildren(long mine, long theirs, double[] values);
+
+    /**
+     * Returns a VectorBatchEvaluator if the Vector API is available and the CPU has 512-bit vectors, otherwise a
+     * ScalarBatchEvaluator.
+     */
+    static BatchEvaluator create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                Class<?> type = Class.forName("VectorBatchEvaluator");
+                if ((Boolean) type.getMethod("isAccelerated").invoke(null)) {
+                    return (BatchEvaluator) type.getDeclaredConstructor().newInstance();
+                }
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not compiled, or compiled against a different incubator version
+            }
+        }
+        return new ScalarBatchEvaluator();
+    }
+}
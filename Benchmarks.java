@@ -0,0 +1,339 @@
+/**
+ * Micro-benchmarks for the hot paths of Board, BitBoard and MyPlayer, run over the opening, midgame and endgame
+ * positions of PositionCorpus. Every benchmark is warmed up first and then measured over several fixed-length
+ * iterations; the mean throughput and its spread over the iterations are printed.
+ *
+ * The evaluator.children and player.search.incremental benchmarks score the children of every position one by one
+ * with an IncrementalEvaluator and in one call with each BatchEvaluator: the scalar one, and the vector one if
+ * BatchEvaluator.create() chooses it (run with --add-modules jdk.incubator.vector and vector/ compiled).
+ *
+ * Results can be saved and compared with a later run to catch performance regressions before a new engine build is
+ * deployed. A benchmark that is slower than the saved result by more than the tolerance is reported as a regression
+ * and the run exits with status 1.
+ *
+ * Run with: java Benchmarks [--filter text] [--save file] [--compare file] [--tolerance percent]
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Benchmarks {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 300_000_000L;
+
+    /**
+     * A unit of benchmarked work. Returns a value derived from the work so the JIT cannot remove it.
+     */
+    interface Workload {
+        long run();
+    }
+
+    // Results are folded into this field so that no workload is dead code
+    private static volatile long sink;
+
+    private final Map<String, Double> results = new LinkedHashMap<String, Double>();
+    private final String filter;
+
+    private Benchmarks(String filter) {
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String filter = "";
+        String save = null;
+        String compare = null;
+        double tolerance = 10.0;
+        for (int i=0; i<args.length; i++) {
+            if (args[i].equals("--filter")) {
+                filter = args[++i];
+            } else if (args[i].equals("--save")) {
+                save = args[++i];
+            } else if (args[i].equals("--compare")) {
+                compare = args[++i];
+            } else if (args[i].equals("--tolerance")) {
+                tolerance = Double.parseDouble(args[++i]);
+            }
+        }
+
+        Benchmarks benchmarks = new Benchmarks(filter);
+        benchmarks.runAll();
+
+        if (save != null) {
+            benchmarks.save(save);
+        }
+        if (compare != null && !benchmarks.compare(compare, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    private void runAll() {
+        System.out.printf("%-45s %16s %10s%n", "Benchmark", "ops/sec", "error");
+
+        String[][] phases = {PositionCorpus.OPENING, PositionCorpus.MIDGAME, PositionCorpus.ENDGAME};
+        String[] phaseNames = {"opening", "midgame", "endgame"};
+
+        List<BatchEvaluator> batchEvaluators = new ArrayList<BatchEvaluator>();
+        batchEvaluators.add(new ScalarBatchEvaluator());
+        BatchEvaluator preferred = BatchEvaluator.create();
+        if (!(preferred instanceof ScalarBatchEvaluator)) {
+            batchEvaluators.add(preferred);
+        }
+
+        for (int p=0; p<phases.length; p++) {
+            String phase = phaseNames[p];
+            Board[] arrayBoards = boards(phases[p], false);
+            Board[] bitBoards = boards(phases[p], true);
+            int[] players = players(phases[p]);
+
+            this.benchmark("board.moveUndo.array." + phase, () -> moveUndo(arrayBoards, players));
+            this.benchmark("board.moveUndo.bitboard." + phase, () -> moveUndo(bitBoards, players));
+            this.benchmark("board.checkIfGameOver.array." + phase, () -> checkIfGameOver(arrayBoards, players));
+            this.benchmark("board.checkIfGameOver.bitboard." + phase, () -> checkIfGameOver(bitBoards, players));
+            this.benchmark("board.copy.array." + phase, () -> copy(arrayBoards));
+            this.benchmark("board.copy.bitboard." + phase, () -> copy(bitBoards));
+
+            MyPlayer player = new MyPlayer();
+            this.benchmark("player.heuristic." + phase, () -> {
+                long checksum = 0;
+                for (int i=0; i<bitBoards.length; i++) {
+                    checksum += Double.doubleToRawLongBits(player.heuristic(bitBoards[i], players[i]));
+                }
+                return checksum;
+            });
+
+            for (int depth : new int[] {2, 4}) {
+                this.benchmark("player.search.negamax.depth" + depth + "." + phase, () -> {
+                    long checksum = 0;
+                    for (int i=0; i<bitBoards.length; i++) {
+                        checksum += player.searchValue(bitBoards[i], depth, players[i] == 1 ? 1 : 2) > 0 ? 1 : 0;
+                        checksum += player.bestColumn;
+                    }
+                    return checksum;
+                });
+            }
+
+            for (int depth : new int[] {5, 7, 9}) {
+                AlphaBetaSearch search = new AlphaBetaSearch(player);
+                this.benchmark("player.search.alphaBeta.depth" + depth + "." + phase, () -> {
+                    long checksum = 0;
+                    for (int i=0; i<bitBoards.length; i++) {
+                        search.clearHeuristics();
+                        search.search(bitBoards[i], depth, players[i]);
+                        checksum += search.bestColumn + search.nodes;
+                    }
+                    return checksum;
+                });
+            }
+
+            // Boards of their own, so the listeners do not slow down the other benchmarks
+            Board[] listenedBoards = boards(phases[p], true);
+            IncrementalEvaluator[] evaluators = new IncrementalEvaluator[listenedBoards.length];
+            for (int i=0; i<listenedBoards.length; i++) {
+                evaluators[i] = new IncrementalEvaluator();
+                evaluators[i].reset(listenedBoards[i]);
+                listenedBoards[i].setListener(evaluators[i]);
+            }
+            this.benchmark("evaluator.children.incremental." + phase,
+                    () -> childrenOneByOne(listenedBoards, players, evaluators));
+            for (BatchEvaluator batch : batchEvaluators) {
+                String name = batch instanceof ScalarBatchEvaluator ? "scalar" : "vector";
+                this.benchmark("evaluator.children.batch." + name + "." + phase,
+                        () -> childrenBatched(bitBoards, players, batch));
+            }
+
+            List<BatchEvaluator> searchEvaluators = new ArrayList<BatchEvaluator>();
+            searchEvaluators.add(null);
+            searchEvaluators.addAll(batchEvaluators);
+            for (BatchEvaluator batch : searchEvaluators) {
+                String name = batch == null ? "leaves" : batch instanceof ScalarBatchEvaluator ? "scalar" : "vector";
+                AlphaBetaSearch search = new AlphaBetaSearch(player);
+                search.setIncrementalEvaluation(true);
+                search.setBatchEvaluator(batch);
+                this.benchmark("player.search.incremental." + name + ".depth7." + phase, () -> {
+                    long checksum = 0;
+                    for (int i=0; i<bitBoards.length; i++) {
+                        search.clearHeuristics();
+                        search.search(bitBoards[i], 7, players[i]);
+                        checksum += search.bestColumn + search.nodes;
+                    }
+                    return checksum;
+                });
+            }
+        }
+    }
+
+    /*
+     * Measures the workload and records its throughput in calls per second.
+     */
+    private void benchmark(String name, Workload workload) {
+        if (!name.contains(this.filter)) {
+            return;
+        }
+
+        for (int i=0; i<WARMUP_ITERATIONS; i++) {
+            runIteration(workload);
+        }
+
+        double[] rates = new double[MEASUREMENT_ITERATIONS];
+        double mean = 0;
+        for (int i=0; i<MEASUREMENT_ITERATIONS; i++) {
+            rates[i] = runIteration(workload);
+            mean += rates[i] / MEASUREMENT_ITERATIONS;
+        }
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - mean) * (rate - mean) / MEASUREMENT_ITERATIONS;
+        }
+
+        this.results.put(name, mean);
+        System.out.printf("%-45s %16.1f %9.1f%%%n", name, mean, 100.0 * Math.sqrt(variance) / mean);
+    }
+
+    /*
+     * Calls the workload repeatedly for ITERATION_NANOS and returns the calls per second.
+     */
+    private static double runIteration(Workload workload) {
+        long checksum = 0;
+        long calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            checksum += workload.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        sink += checksum;
+        return calls / (elapsed / 1e9);
+    }
+
+    private static long moveUndo(Board[] boards, int[] players) {
+        long checksum = 0;
+        for (int i=0; i<boards.length; i++) {
+            for (int column=0; column<Board.BOARD_SIZE; column++) {
+                if (boards[i].move(players[i], column)) {
+                    checksum += boards[i].getHash();
+                    boards[i].undoMove(column);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static long checkIfGameOver(Board[] boards, int[] players) {
+        long checksum = 0;
+        for (int i=0; i<boards.length; i++) {
+            for (int column=0; column<Board.BOARD_SIZE; column++) {
+                if (boards[i].move(players[i], column)) {
+                    checksum += boards[i].checkIfGameOver(column);
+                    boards[i].undoMove(column);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /*
+     * Plays every move on the board and scores it with the board's listening evaluator, the way a search scores the
+     * leaves below a frontier node.
+     */
+    private static long childrenOneByOne(Board[] boards, int[] players, IncrementalEvaluator[] evaluators) {
+        long checksum = 0;
+        for (int i=0; i<boards.length; i++) {
+            for (int column=0; column<Board.BOARD_SIZE; column++) {
+                if (boards[i].move(players[i], column)) {
+                    double value = boards[i].checkIfGameOver(column) >= 0 ? 1.0 : evaluators[i].evaluate(players[i]);
+                    checksum += Double.doubleToRawLongBits(value);
+                    boards[i].undoMove(column);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static long childrenBatched(Board[] boards, int[] players, BatchEvaluator batch) {
+        long checksum = 0;
+        double[] values = new double[Board.BOARD_SIZE];
+        for (int i=0; i<boards.length; i++) {
+            BitBoard gameBoard = (BitBoard) boards[i];
+            int player = players[i];
+            checksum += batch.evaluateChildren(gameBoard.getPlayerTiles(player),
+                    gameBoard.getPlayerTiles(player == 1 ? 2 : 1), values);
+            for (double value : values) {
+                checksum += Double.doubleToRawLongBits(value);
+            }
+        }
+        return checksum;
+    }
+
+    private static long copy(Board[] boards) {
+        long checksum = 0;
+        for (Board gameBoard : boards) {
+            Board copy = gameBoard instanceof BitBoard ? new BitBoard(gameBoard) : new Board(gameBoard);
+            checksum += copy.getHash();
+        }
+        return checksum;
+    }
+
+    private static Board[] boards(String[] positions, boolean bitBoard) {
+        Board[] boards = new Board[positions.length];
+        for (int i=0; i<positions.length; i++) {
+            boards[i] = bitBoard ? new BitBoard() : new Board();
+            PositionCorpus.play(positions[i], boards[i]);
+        }
+        return boards;
+    }
+
+    private static int[] players(String[] positions) {
+        int[] players = new int[positions.length];
+        for (int i=0; i<positions.length; i++) {
+            players[i] = positions[i].length() % 2 == 0 ? 1 : 2;
+        }
+        return players;
+    }
+
+    private void save(String file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        for (Map.Entry<String, Double> result : this.results.entrySet()) {
+            lines.add(result.getKey() + "=" + result.getValue());
+        }
+        Files.write(Paths.get(file), lines, StandardCharsets.UTF_8);
+        System.out.println("Saved " + lines.size() + " results to " + file);
+    }
+
+    /*
+     * Compares this run with the results saved in file. Returns false if any benchmark got slower by more than
+     * tolerance percent.
+     */
+    private boolean compare(String file, double tolerance) throws IOException {
+        boolean passed = true;
+        System.out.println();
+        System.out.printf("%-45s %16s %16s %9s%n", "Benchmark", "baseline", "current", "change");
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            int split = line.lastIndexOf('=');
+            if (split < 0) {
+                continue;
+            }
+            String name = line.substring(0, split);
+            Double current = this.results.get(name);
+            if (current == null) {
+                continue;
+            }
+
+            double baseline = Double.parseDouble(line.substring(split + 1));
+            double change = 100.0 * (current - baseline) / baseline;
+            boolean regression = change < -tolerance;
+            passed = passed && !regression;
+            System.out.printf("%-45s %16.1f %16.1f %8.1f%%%s%n", name, baseline, current, change,
+                    regression ? "  REGRESSION" : "");
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * This class stores a Connect Four game board as two 64-bit masks, one for each player's tiles. Each column uses 8 bits
+ * of a mask: the low 7 bits are the rows of the column (bottom row first) and the top bit is always left empty so that
+ * shifting a mask can never carry a tile from the top of one column into the bottom of the next one. The height of
+ * every column is kept in a byte, so move and undoMove run in constant time and a win is found with a few shifts and
+ * masks instead of walking the grid.
+ *
+ * BitBoard has the same public API as Board. getBoard() returns a 2D array view of the tiles that is only rebuilt when
+ * the board has changed since the last call. The view is read-only: writing to it does not change the board.
+ */
+
+import java.util.Arrays;
+
+public class BitBoard extends Board {
+
+    // Bits used by a single column (BOARD_SIZE rows plus one empty separator bit)
+    public static final int COLUMN_BITS = BOARD_SIZE + 1;
+
+    // Shift distances between neighbouring cells
+    private static final int VERTICAL = 1;
+    private static final int HORIZONTAL = COLUMN_BITS;
+    private static final int DIAGONAL = COLUMN_BITS + 1;
+    private static final int ANTI_DIAGONAL = COLUMN_BITS - 1;
+
+    // One bit at the bottom of every column, and every playable cell on the board
+    public static final long BOTTOM_ROW = bottomRow();
+    public static final long FULL_BOARD = BOTTOM_ROW * ((1L << BOARD_SIZE) - 1);
+
+    //Game Board
+    private long player1Tiles;
+    private long player2Tiles;
+    private byte[] heights;
+
+    // Lazily materialized 2D view returned by getBoard()
+    private int[][] view;
+    private boolean viewStale;
+
+    /**
+     * Initializes an empty board
+     */
+    public BitBoard() {
+        super((int[]) null);
+        this.heights = new byte[BOARD_SIZE];
+        this.viewStale = true;
+    }
+
+    /**
+     * Initializes a copy of the board. Any Board can be copied.
+     */
+    public BitBoard(Board toCopy) {
+        this();
+        this.copyFrom(toCopy);
+    }
+
+    /**
+     * Overwrites this board with the tiles of another board. Copying a BitBoard into a BitBoard does not allocate.
+     */
+    @Override
+    public void copyFrom(Board toCopy) {
+        this.viewStale = true;
+        if (toCopy instanceof BitBoard) {
+            BitBoard other = (BitBoard) toCopy;
+            this.player1Tiles = other.player1Tiles;
+            this.player2Tiles = other.player2Tiles;
+            this.hash = other.hash;
+            this.mirrorHash = other.mirrorHash;
+            System.arraycopy(other.heights, 0, this.heights, 0, BOARD_SIZE);
+            return;
+        }
+
+        if (toCopy.getGeometry() != BoardGeometry.STANDARD) {
+            throw new IllegalArgumentException("Cannot copy a " + toCopy.getGeometry() + " board into a "
+                    + BoardGeometry.STANDARD + " board");
+        }
+        this.player1Tiles = 0;
+        this.player2Tiles = 0;
+        this.hash = 0;
+        this.mirrorHash = 0;
+        Arrays.fill(this.heights, (byte) 0);
+        int[][] cells = toCopy.getBoard();
+        for (int j=0; j<BOARD_SIZE; j++) {
+            for (int i=0; i<BOARD_SIZE && cells[i][j] != 0; i++) {
+                this.move(cells[i][j], j);
+            }
+        }
+    }
+
+    /**
+     * Returns a mirrored BitBoard. Every column is one byte of a mask, so mirroring reverses the byte order.
+     */
+    @Override
+    public Board mirror() {
+        BitBoard mirrored = new BitBoard();
+        int unused = Long.SIZE - BOARD_SIZE * COLUMN_BITS;
+        mirrored.player1Tiles = Long.reverseBytes(this.player1Tiles) >>> unused;
+        mirrored.player2Tiles = Long.reverseBytes(this.player2Tiles) >>> unused;
+        for (int j=0; j<BOARD_SIZE; j++) {
+            mirrored.heights[BOARD_SIZE - 1 - j] = this.heights[j];
+        }
+        mirrored.hash = this.mirrorHash;
+        mirrored.mirrorHash = this.hash;
+        return mirrored;
+    }
+
+    /**
+     * Returns a 7x7 array with the same layout as Board's: board[row][column], row 0 at the bottom. The array is
+     * shared between calls and is rebuilt only after the board changes.
+     */
+    @Override
+    public int[][] getBoard() {
+        if (this.view == null) {
+            this.view = new int[BOARD_SIZE][BOARD_SIZE];
+        }
+        if (this.viewStale) {
+            for (int i=0; i<BOARD_SIZE; i++) {
+                for (int j=0; j<BOARD_SIZE; j++) {
+                    this.view[i][j] = this.getCell(i, j);
+                }
+            }
+            this.viewStale = false;
+        }
+        return this.view;
+    }
+
+    @Override
+    public boolean isColumnOpen(int column) {
+        return column >= 0 && column < BOARD_SIZE && this.heights[column] < BOARD_SIZE;
+    }
+
+    /**
+     * Places a tile for player in the specified column. Any player number other than 1 is stored as player 2.
+     *
+     * @see Board#move(int, int)
+     */
+    @Override
+    public boolean move(int player, int column) {
+        if (!this.isColumnOpen(column)) {
+            return false;
+        }
+
+        int row = this.heights[column];
+        long tile = 1L << (column * COLUMN_BITS + row);
+        if (player == 1) {
+            this.player1Tiles |= tile;
+        } else {
+            this.player2Tiles |= tile;
+        }
+        this.hash ^= Zobrist.key(player, row, column);
+        this.mirrorHash ^= Zobrist.mirrorKey(player, row, column);
+        this.heights[column]++;
+        this.viewStale = true;
+        if (this.listener != null) {
+            this.listener.tilePlaced(player, row, column);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean undoMove(int column) {
+        if (column < 0 || column >= BOARD_SIZE || this.heights[column] == 0) {
+            return false;
+        }
+
+        this.heights[column]--;
+        int row = this.heights[column];
+        long tile = 1L << (column * COLUMN_BITS + row);
+        int player = (this.player1Tiles & tile) != 0 ? 1 : 2;
+        this.hash ^= Zobrist.key(player, row, column);
+        this.mirrorHash ^= Zobrist.mirrorKey(player, row, column);
+        this.player1Tiles &= ~tile;
+        this.player2Tiles &= ~tile;
+        this.viewStale = true;
+        if (this.listener != null) {
+            this.listener.tileRemoved(player, row, column);
+        }
+        return true;
+    }
+
+    /**
+     * Returns -1 if the game is not over, 0 for a tie, or the number of the player who won with the tile on top of
+     * lastMoveColumn. Returns -1 if lastMoveColumn is empty or out of range.
+     *
+     * @see Board#checkIfGameOver(int)
+     */
+    @Override
+    public int checkIfGameOver(int lastMoveColumn) {
+        int lastMoveRow = this.getLastMoveRow(lastMoveColumn);
+        if (lastMoveRow < 0) {
+            return -1;
+        }
+
+        int player = this.getCell(lastMoveRow, lastMoveColumn);
+        if (hasConnectFour(player == 1 ? this.player1Tiles : this.player2Tiles)) {
+            return player;
+        }
+
+        if ((this.player1Tiles | this.player2Tiles) == FULL_BOARD) {
+            return 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the tiles contain CONNECT_GOAL in a row in any direction.
+     */
+    public static boolean hasConnectFour(long tiles) {
+        return hasConnection(tiles, VERTICAL)
+                || hasConnection(tiles, HORIZONTAL)
+                || hasConnection(tiles, DIAGONAL)
+                || hasConnection(tiles, ANTI_DIAGONAL);
+    }
+
+    /**
+     * Returns the row of the top tile in the column, or -1 if the column is empty or out of range.
+     */
+    public int getLastMoveRow(int column) {
+        if (column < 0 || column >= BOARD_SIZE) {
+            return -1;
+        }
+        return this.heights[column] - 1;
+    }
+
+    /**
+     * Returns 0 for an open slot, otherwise the number of the player whose tile is in the slot.
+     */
+    public int getCell(int row, int column) {
+        long tile = 1L << (column * COLUMN_BITS + row);
+        if ((this.player1Tiles & tile) != 0) {
+            return 1;
+        } else if ((this.player2Tiles & tile) != 0) {
+            return 2;
+        }
+        return 0;
+    }
+
+    public long getPlayerTiles(int player) {
+        return player == 1 ? this.player1Tiles : this.player2Tiles;
+    }
+
+    private static boolean hasConnection(long tiles, int shift) {
+        long run = tiles;
+        for (int k=1; k<CONNECT_GOAL; k++) {
+            run &= tiles >>> (k * shift);
+        }
+        return run != 0;
+    }
+
+    private static long bottomRow() {
+        long bottom = 0;
+        for (int j=0; j<BOARD_SIZE; j++) {
+            bottom |= 1L << (j * COLUMN_BITS);
+        }
+        return bottom;
+    }
+}
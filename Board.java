@@ -1,43 +1,170 @@
 /**
- * This class stores a Connect Four game board as a 7x7 2D array where 0 represents an open slot, 1 represents a slot
+ * This class stores a Connect Four game board as a 7x7 grid where 0 represents an open slot, 1 represents a slot
  * occupied by one of Player 1's tiles, and 2 represents a slot occupied by one of Player 2's tiles.
+ *
+ * The grid is kept in a single flat array in row-major order (row 0 at the bottom), so copying a board is one
+ * System.arraycopy. getBoard() returns a 2D view of the grid that is only rebuilt after the board changes. The tiles
+ * of each player are also kept as a bit mask, so checkIfGameOver() only has to test the WinningLines windows through
+ * the last move.
  */
 
 public class Board {
 
     public static final int BOARD_SIZE = 7;
-    private static final int CONNECT_GOAL = 4;
+    protected static final int CONNECT_GOAL = 4;
 
-    //Game Board
-    private int[][] board;
+    //Game Board, board[row * BOARD_SIZE + column]
+    private int[] board;
+
+    // Tiles of player 1 and of player 2 as WinningLines masks
+    private long[] tiles;
+
+    // Lazily materialized 2D view returned by getBoard()
+    private int[][] view;
+    private boolean viewStale;
+
+    // Zobrist hash of the tiles on the board and of their mirror image, updated by move() and undoMove()
+    protected long hash;
+    protected long mirrorHash;
+
+    // Notified of every move() and undoMove(), may be null
+    protected BoardListener listener;
 
     /**
      * Initializes an empty board
      */
     public Board() {
+        this.board = new int[BOARD_SIZE * BOARD_SIZE];
+        this.tiles = new long[2];
+        this.viewStale = true;
+    }
 
-        this.board = new int[BOARD_SIZE][BOARD_SIZE];
-        for (int i=0; i<BOARD_SIZE; i++) {
-            for (int j=0; j<BOARD_SIZE; j++) {
-                this.board[i][j] = 0;
+    /**
+     * Initializes a copy of the board
+     */
+    public Board(Board toCopy) {
+        this();
+        this.copyFrom(toCopy);
+    }
+
+    /**
+     * Initializes a board that does not use the flat array for storage. Subclasses that keep the tiles in a different
+     * representation use this constructor and override every public method that reads or changes the board.
+     */
+    protected Board(int[] board) {
+        this.board = board;
+    }
+
+    /**
+     * Overwrites this board with the tiles of another board without allocating, so a single Board can be reused to
+     * hand out copies of a game in progress.
+     */
+    public void copyFrom(Board toCopy) {
+        if (toCopy.getGeometry() != BoardGeometry.STANDARD) {
+            throw new IllegalArgumentException("Cannot copy a " + toCopy.getGeometry() + " board into a "
+                    + BoardGeometry.STANDARD + " board");
+        }
+        if (toCopy.board != null) {
+            System.arraycopy(toCopy.board, 0, this.board, 0, this.board.length);
+            this.tiles[0] = toCopy.tiles[0];
+            this.tiles[1] = toCopy.tiles[1];
+        } else {
+            int[][] cells = toCopy.getBoard();
+            this.tiles[0] = 0;
+            this.tiles[1] = 0;
+            for (int i=0; i<BOARD_SIZE; i++) {
+                System.arraycopy(cells[i], 0, this.board, i * BOARD_SIZE, BOARD_SIZE);
+                for (int j=0; j<BOARD_SIZE; j++) {
+                    if (cells[i][j] != 0) {
+                        this.tiles[cells[i][j] == 1 ? 0 : 1] |= WinningLines.bit(i, j);
+                    }
+                }
             }
         }
+        this.hash = toCopy.hash;
+        this.mirrorHash = toCopy.mirrorHash;
+        this.viewStale = true;
     }
 
     /**
-     * Initializes a copy of the board
+     * Returns a new board of the same kind with every column mirrored, column j moving to column BOARD_SIZE - 1 - j.
      */
-    public Board(Board toCopy) {
-        this.board = new int[BOARD_SIZE][BOARD_SIZE];
+    public Board mirror() {
+        Board mirrored = new Board();
         for (int i=0; i<BOARD_SIZE; i++) {
             for (int j=0; j<BOARD_SIZE; j++) {
-                this.board[i][j] = toCopy.board[i][j];
+                int player = this.board[i*BOARD_SIZE + j];
+                mirrored.board[i*BOARD_SIZE + BOARD_SIZE - 1 - j] = player;
+                if (player != 0) {
+                    mirrored.tiles[player == 1 ? 0 : 1] |= WinningLines.bit(i, BOARD_SIZE - 1 - j);
+                }
             }
         }
+        mirrored.hash = this.mirrorHash;
+        mirrored.mirrorHash = this.hash;
+        return mirrored;
     }
 
+    /**
+     * Sets the listener that is told about every tile placed or removed by move() and undoMove(), or null for none.
+     */
+    public void setListener(BoardListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the dimensions of the board. Board and BitBoard are always BoardGeometry.STANDARD.
+     */
+    public BoardGeometry getGeometry() {
+        return BoardGeometry.STANDARD;
+    }
+
+    /**
+     * Returns the Zobrist hash of the tiles on the board. Boards with the same tiles have the same hash, no matter
+     * in which order the tiles were played or which Board implementation holds them.
+     */
+    public long getHash() {
+        return this.hash;
+    }
+
+    /**
+     * Returns the hash of the mirror image of the board, which is kept up to date as cheaply as getHash().
+     */
+    public long getMirrorHash() {
+        return this.mirrorHash;
+    }
+
+    /**
+     * Returns the smaller of getHash() and getMirrorHash(), so a position and its mirror image have the same
+     * canonical hash. When the mirror hash is the smaller one, columns of the canonical position are mirrored.
+     */
+    public long getCanonicalHash() {
+        return Math.min(this.hash, this.mirrorHash);
+    }
+
+    /**
+     * Returns true if the board is its own mirror image, in which case column j and column BOARD_SIZE - 1 - j lead
+     * to mirrored positions of equal value.
+     */
+    public boolean isSymmetric() {
+        return this.hash == this.mirrorHash;
+    }
+
+    /**
+     * Returns the board as a 7x7 array, board[row][column] with row 0 at the bottom. The array is shared between
+     * calls and is rebuilt only after the board changes, so it must be treated as read-only.
+     */
     public int[][] getBoard() {
-        return this.board;
+        if (this.view == null) {
+            this.view = new int[BOARD_SIZE][BOARD_SIZE];
+        }
+        if (this.viewStale) {
+            for (int i=0; i<BOARD_SIZE; i++) {
+                System.arraycopy(this.board, i * BOARD_SIZE, this.view[i], 0, BOARD_SIZE);
+            }
+            this.viewStale = false;
+        }
+        return this.view;
     }
 
 
@@ -69,7 +196,14 @@ public class Board {
         if (row < 0) {
             return false;
         } else {
-            this.board[row][column] = player;
+            this.board[row*BOARD_SIZE + column] = player;
+            this.tiles[player == 1 ? 0 : 1] |= WinningLines.bit(row, column);
+            this.hash ^= Zobrist.key(player, row, column);
+            this.mirrorHash ^= Zobrist.mirrorKey(player, row, column);
+            this.viewStale = true;
+            if (this.listener != null) {
+                this.listener.tilePlaced(player, row, column);
+            }
             return true;
         }
     }
@@ -84,7 +218,15 @@ public class Board {
             return false;
         }
 
-        this.board[lastMoveRow][column] = 0;
+        int player = this.board[lastMoveRow*BOARD_SIZE + column];
+        this.hash ^= Zobrist.key(player, lastMoveRow, column);
+        this.mirrorHash ^= Zobrist.mirrorKey(player, lastMoveRow, column);
+        this.board[lastMoveRow*BOARD_SIZE + column] = 0;
+        this.tiles[player == 1 ? 0 : 1] &= ~WinningLines.bit(lastMoveRow, column);
+        this.viewStale = true;
+        if (this.listener != null) {
+            this.listener.tileRemoved(player, lastMoveRow, column);
+        }
         return true;
     }
 
@@ -101,13 +243,9 @@ public class Board {
     public int checkIfGameOver(int lastMoveColumn) {
 
         int lastMoveRow = this.getLastMoveRow(lastMoveColumn);
-        int player = this.board[lastMoveRow][lastMoveColumn];
-
-        boolean winner = this.checkColumn(player, lastMoveRow, lastMoveColumn);
-        winner =  winner || this.checkRow(player, lastMoveRow, lastMoveColumn);
-        winner = winner || this.checkDiagonal(player, lastMoveRow, lastMoveColumn);
+        int player = this.board[lastMoveRow*BOARD_SIZE + lastMoveColumn];
 
-        if (winner) {
+        if (WinningLines.isWin(this.tiles[player == 1 ? 0 : 1], lastMoveRow, lastMoveColumn)) {
             return player;
         }
 
@@ -119,21 +257,24 @@ public class Board {
      *
      */
     public void printBoard() {
-        String rowSep = "-----------------------------";
+        int rows = this.getGeometry().getRows();
+        int columns = this.getGeometry().getColumns();
+        String rowSep = "-".repeat(4 * columns + 1);
         String columnSep = "| ";
+        int[][] cells = this.getBoard();
 
 
-        for (int i=BOARD_SIZE-1; i>= 0; i--) {
+        for (int i=rows-1; i>= 0; i--) {
             System.out.println(rowSep);
-            for (int j=0; j<BOARD_SIZE; j++) {
-                System.out.print(columnSep + this.cellToString(this.board[i][j]));
+            for (int j=0; j<columns; j++) {
+                System.out.print(columnSep + this.cellToString(cells[i][j]));
             }
             System.out.println(columnSep);
         }
         System.out.println(rowSep);
 
         System.out.print(" ");
-        for (int i=0; i<BOARD_SIZE; i++) {
+        for (int i=0; i<columns; i++) {
             System.out.print(" " + i + "  " );
         }
         System.out.println("");
@@ -151,7 +292,7 @@ public class Board {
 
     private int isGameTied() {
         for (int j=0; j<BOARD_SIZE; j++) {
-            if (this.board[BOARD_SIZE-1][j] == 0) {
+            if (this.board[(BOARD_SIZE-1)*BOARD_SIZE + j] == 0) {
                 return -1;
             }
         }
@@ -165,7 +306,7 @@ public class Board {
 
         int open = -1;
         for (int i=0; i<BOARD_SIZE; i++) {
-            if (this.board[i][column] == 0) {
+            if (this.board[i*BOARD_SIZE + column] == 0) {
                 open = i;
                 break;
             }
@@ -180,7 +321,7 @@ public class Board {
 
         int lastMoveRow = -1;
         for (int i=BOARD_SIZE-1; i>=0; i--) {
-            if (this.board[i][lastMoveColumn] != 0) {
+            if (this.board[i*BOARD_SIZE + lastMoveColumn] != 0) {
                 lastMoveRow = i;
                 break;
             }
@@ -188,99 +329,4 @@ public class Board {
 
         return lastMoveRow;
     }
-
-
-
-    private boolean checkColumn(int player, int lastMoveRow, int lastMoveColumn) {
-
-        int connectNum = 0;
-        for (int i=lastMoveRow; i >= 0; i--) {
-            if (this.board[i][lastMoveColumn] == player) {
-                connectNum++;
-            } else {
-                break;
-            }
-        }
-
-        if (connectNum >= CONNECT_GOAL) {
-            return true;
-        }
-
-        return false;
-    }
-
-    private boolean checkRow(int player, int lastMoveRow, int lastMoveColumn) {
-        int connectNum = 0;
-        for (int j=lastMoveColumn; j < BOARD_SIZE; j++) {
-            if (this.board[lastMoveRow][j] == player) {
-                connectNum++;
-            } else {
-                break;
-            }
-        }
-
-        for (int j=lastMoveColumn-1; j >= 0; j--) {
-            if (this.board[lastMoveRow][j] == player) {
-                connectNum++;
-            } else {
-                break;
-            }
-        }
-
-        if (connectNum >= CONNECT_GOAL) {
-            return true;
-        }
-
-        return false;
-    }
-
-    private boolean checkDiagonal(int player, int lastMoveRow, int lastMoveColumn) {
-        int connectNum = 0;
-
-
-        for (int i=lastMoveRow, j=lastMoveColumn; i < BOARD_SIZE && j<BOARD_SIZE; i++, j++) {
-            if (this.board[i][j] == player) {
-                connectNum++;
-            } else {
-                break;
-            }
-        }
-
-        for (int i=lastMoveRow-1, j=lastMoveColumn-1; i>=0 && j >= 0; i--, j--) {
-            if (this.board[i][j] == player) {
-                connectNum++;
-            } else {
-                break;
-            }
-        }
-
-        if (connectNum >= CONNECT_GOAL) {
-            return true;
-        }
-
-        connectNum = 0;
-        for (int i=lastMoveRow, j=lastMoveColumn; i < BOARD_SIZE && j>=0; i++, j--) {
-            if (this.board[i][j] == player) {
-                connectNum++;
-            } else {
-                break;
-            }
-        }
-
-        for (int i=lastMoveRow-1, j=lastMoveColumn+1; i >= 0 && j < BOARD_SIZE; i--, j++) {
-            if (this.board[i][j] == player) {
-                connectNum++;
-            } else {
-                break;
-            }
-        }
-
-        if (connectNum >= CONNECT_GOAL) {
-            return true;
-        }
-
-        return false;
-    }
-
-
 }
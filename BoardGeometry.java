@@ -0,0 +1,285 @@
+/**
+ * Dimensions of a Connect Four variant: the number of rows and columns and how many tiles in a row win. Everything
+ * that depends on the dimensions is generated from them when the geometry is created: every winning window (as cells
+ * and, when the board fits in a long, as a bit mask), the windows through every cell, the weighted table used by
+ * MyPlayer's heuristic (the number of windows through each cell) and the Zobrist keys.
+ *
+ * STANDARD is the 7x7 connect-4 board of Board.BOARD_SIZE and Board.CONNECT_GOAL. It is played on BitBoard and is
+ * the only geometry the alpha-beta search, the endgame solver and the caches support; other geometries are played on
+ * a VariantBoard with MyPlayer's negamax search. A variant whose columns each fit in rows + 1 bits of a long (for
+ * example 6x7 or 7x8) keeps its tiles in bit masks like BitBoard; larger ones (for example 8x8) use an array.
+ *
+ * Bit masks use BitBoard's layout generalized to any height: cell (row, column) is bit column * (rows + 1) + row.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public final class BoardGeometry {
+
+    // Directions as {row step, column step}: horizontal, vertical, diagonal, anti-diagonal
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    public static final BoardGeometry STANDARD =
+            new BoardGeometry(Board.BOARD_SIZE, Board.BOARD_SIZE, Board.CONNECT_GOAL);
+
+    // Standard 6 row, 7 column Connect Four
+    public static final BoardGeometry CLASSIC = new BoardGeometry(6, 7, 4);
+
+    private final int rows;
+    private final int columns;
+    private final int connect;
+
+    // Cells of every window as row * columns + column, their bit masks (null if the board does not fit in a long),
+    // and the windows through every cell
+    private final int[][] windowCells;
+    private final long[] windowMasks;
+    private final int[][] cellWindows;
+
+    // weightedTable[row][column] is the number of windows through the cell
+    private final int[][] weightedTable;
+
+    // Zobrist keys, keys[player - 1][row * columns + column]
+    private final long[][] keys;
+
+    private BoardGeometry(int rows, int columns, int connect) {
+        this.rows = rows;
+        this.columns = columns;
+        this.connect = connect;
+        this.windowCells = windowCells(rows, columns, connect);
+        this.windowMasks = fitsInLong(rows, columns) ? windowMasks(this.windowCells, rows, columns) : null;
+        this.cellWindows = cellWindows(this.windowCells, rows * columns);
+        this.weightedTable = new int[rows][columns];
+        for (int i=0; i<rows; i++) {
+            for (int j=0; j<columns; j++) {
+                this.weightedTable[i][j] = this.cellWindows[i * columns + j].length;
+            }
+        }
+        this.keys = new long[2][rows * columns];
+        SplittableRandom random = new SplittableRandom(((long) rows << 32) ^ ((long) columns << 16) ^ connect);
+        for (long[] playerKeys : this.keys) {
+            for (int i=0; i<playerKeys.length; i++) {
+                playerKeys[i] = random.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Returns the geometry with the given dimensions; 7x7 connect-4 returns STANDARD.
+     *
+     * @throws IllegalArgumentException if a dimension is smaller than 1, the board has more than 127 rows or columns,
+     *                                  or no line of connect tiles fits on the board
+     */
+    public static BoardGeometry of(int rows, int columns, int connect) {
+        if (rows < 1 || columns < 1 || rows > Byte.MAX_VALUE || columns > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid board size " + rows + "x" + columns);
+        }
+        if (connect < 2 || connect > Math.max(rows, columns)) {
+            throw new IllegalArgumentException("Cannot connect " + connect + " on a " + rows + "x" + columns
+                    + " board");
+        }
+        if (STANDARD.matches(rows, columns, connect)) {
+            return STANDARD;
+        }
+        if (CLASSIC.matches(rows, columns, connect)) {
+            return CLASSIC;
+        }
+        return new BoardGeometry(rows, columns, connect);
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    public int getColumns() {
+        return this.columns;
+    }
+
+    public int getConnect() {
+        return this.connect;
+    }
+
+    public int getCellCount() {
+        return this.rows * this.columns;
+    }
+
+    /**
+     * Returns true if every column fits in rows + 1 bits of a long, so the tiles can be kept in bit masks.
+     */
+    public boolean fitsInLong() {
+        return fitsInLong(this.rows, this.columns);
+    }
+
+    /**
+     * Returns the bit of the cell in a bit mask. Only valid if fitsInLong().
+     */
+    public long bit(int row, int column) {
+        return 1L << (column * (this.rows + 1) + row);
+    }
+
+    public int getWindowCount() {
+        return this.windowCells.length;
+    }
+
+    /**
+     * Returns the k-th cell (0 to connect - 1) of window w as row * columns + column.
+     */
+    public int getWindowCell(int w, int k) {
+        return this.windowCells[w][k];
+    }
+
+    /**
+     * Returns the cells of window w as a bit mask. Only valid if fitsInLong().
+     */
+    public long getWindowMask(int w) {
+        return this.windowMasks[w];
+    }
+
+    /**
+     * Returns the number of windows through a cell, given as row * columns + column.
+     */
+    public int getCellWindowCount(int cell) {
+        return this.cellWindows[cell].length;
+    }
+
+    /**
+     * Returns the k-th window through a cell.
+     */
+    public int getCellWindow(int cell, int k) {
+        return this.cellWindows[cell][k];
+    }
+
+    /**
+     * Returns the number of windows through the cell, MyPlayer's weight for it.
+     */
+    public int getCellWeight(int row, int column) {
+        return this.weightedTable[row][column];
+    }
+
+    /**
+     * Returns a copy of the weighted table, table[row][column].
+     */
+    public int[][] getWeightedTable() {
+        int[][] table = new int[this.rows][];
+        for (int i=0; i<this.rows; i++) {
+            table[i] = this.weightedTable[i].clone();
+        }
+        return table;
+    }
+
+    /*
+     * Returns the weighted table itself, for callers in this package that only read it.
+     */
+    int[][] weightedTable() {
+        return this.weightedTable;
+    }
+
+    /**
+     * Returns the Zobrist key of a tile. The standard geometry uses Zobrist's keys, so hashes match Board's.
+     */
+    public long key(int player, int row, int column) {
+        if (this == STANDARD) {
+            return Zobrist.key(player, row, column);
+        }
+        return this.keys[player == 1 ? 0 : 1][row * this.columns + column];
+    }
+
+    /**
+     * Returns the Zobrist key of the tile's mirror image.
+     */
+    public long mirrorKey(int player, int row, int column) {
+        return this.key(player, row, this.columns - 1 - column);
+    }
+
+    /**
+     * Returns a new empty board of this geometry, using the fastest implementation available for it.
+     */
+    public Board newBoard() {
+        if (this == STANDARD) {
+            return new BitBoard();
+        }
+        return new VariantBoard(this);
+    }
+
+    private boolean matches(int rows, int columns, int connect) {
+        return this.rows == rows && this.columns == columns && this.connect == connect;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BoardGeometry)) {
+            return false;
+        }
+        BoardGeometry geometry = (BoardGeometry) other;
+        return geometry.matches(this.rows, this.columns, this.connect);
+    }
+
+    @Override
+    public int hashCode() {
+        return (this.rows * 31 + this.columns) * 31 + this.connect;
+    }
+
+    @Override
+    public String toString() {
+        return this.rows + "x" + this.columns + " connect " + this.connect;
+    }
+
+    private static boolean fitsInLong(int rows, int columns) {
+        return columns * (rows + 1) <= Long.SIZE;
+    }
+
+    /*
+     * Returns the cells of every window of connect cells in a row, as row * columns + column.
+     */
+    static int[][] windowCells(int rows, int columns, int connect) {
+        List<int[]> windows = new ArrayList<int[]>();
+        for (int[] d : DIRECTIONS) {
+            for (int i=0; i<rows; i++) {
+                for (int j=0; j<columns; j++) {
+                    int endRow = i + d[0] * (connect - 1);
+                    int endColumn = j + d[1] * (connect - 1);
+                    if (endRow < 0 || endRow >= rows || endColumn < 0 || endColumn >= columns) {
+                        continue;
+                    }
+                    int[] window = new int[connect];
+                    for (int k=0; k<connect; k++) {
+                        window[k] = (i + d[0] * k) * columns + (j + d[1] * k);
+                    }
+                    windows.add(window);
+                }
+            }
+        }
+        return windows.toArray(new int[0][]);
+    }
+
+    static long[] windowMasks(int[][] windowCells, int rows, int columns) {
+        long[] masks = new long[windowCells.length];
+        for (int w=0; w<windowCells.length; w++) {
+            for (int cell : windowCells[w]) {
+                masks[w] |= 1L << ((cell % columns) * (rows + 1) + cell / columns);
+            }
+        }
+        return masks;
+    }
+
+    static int[][] cellWindows(int[][] windowCells, int cells) {
+        int[] sizes = new int[cells];
+        for (int[] window : windowCells) {
+            for (int cell : window) {
+                sizes[cell]++;
+            }
+        }
+        int[][] cellWindows = new int[cells][];
+        for (int cell=0; cell<cells; cell++) {
+            cellWindows[cell] = new int[sizes[cell]];
+            sizes[cell] = 0;
+        }
+        for (int w=0; w<windowCells.length; w++) {
+            for (int cell : windowCells[w]) {
+                cellWindows[cell][sizes[cell]++] = w;
+            }
+        }
+        return cellWindows;
+    }
+}
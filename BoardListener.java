@@ -0,0 +1,11 @@
+/**
+ * Receives a callback every time a tile is placed on or removed from a Board with move() or undoMove(). Used to keep
+ * data derived from the board, such as an evaluation, up to date without rescanning the grid. copyFrom() does not
+ * send callbacks; a listener has to be re-synchronized after a board is overwritten.
+ */
+public interface BoardListener {
+
+    void tilePlaced(int player, int row, int column);
+
+    void tileRemoved(int player, int row, int column);
+}
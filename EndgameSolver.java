@@ -0,0 +1,300 @@
+/**
+ * Exact solver for positions with few empty cells. Instead of stopping at a fixed depth and guessing with a heuristic,
+ * it searches every line to the end of the game and returns the exact result, including how soon it happens:
+ *
+ *   score = CELLS + 1 - n  if the player to move wins, n being the number of tiles on the board after the winning tile
+ *   score = 0              if the game ends in a tie
+ *   score = -(CELLS + 1 - n) if the opponent wins with the n-th tile
+ *
+ * so a higher score is a faster win (or a slower loss). The exact score is found with a sequence of null-window
+ * searches that each only answer "is the score above x?" and halve the remaining range (MTD(f) style); null-window
+ * searches cut off far more than a search with a wide window.
+ *
+ * The solver works on its own pair of bit masks (the tiles of the player to move and all tiles, in BitBoard's layout)
+ * passed by value, so searching does not change the board and does not allocate. Before searching a position it
+ * plays an immediate win if there is one, plays the forced block if the opponent threatens to win, gives up at once
+ * if the opponent has two threats, and never plays directly below a cell where the opponent would win. Results are
+ * kept in a table of upper bounds that is shared between searches. Positions found in a Tablebase, if one is set, are
+ * not searched at all.
+ *
+ * The time to solve grows exponentially with the number of empty cells; MyPlayer only uses the solver once the board
+ * has at most setSolverThreshold() empty cells.
+ */
+
+public class EndgameSolver {
+
+    // Playable cells on the board
+    public static final int CELLS = Board.BOARD_SIZE * Board.BOARD_SIZE;
+
+    private static final int COLUMN_BITS = BitBoard.COLUMN_BITS;
+    private static final long COLUMN_MASK = (1L << Board.BOARD_SIZE) - 1;
+    private static final long VALID = 1L << 63;
+
+    // Shift distances between neighbouring cells: vertical, horizontal, diagonal and anti-diagonal
+    private static final int[] DIRECTIONS = {1, COLUMN_BITS, COLUMN_BITS + 1, COLUMN_BITS - 1};
+
+    // Upper bounds of scores, indexed by a hash of the position key
+    private final long[] keys;
+    private final byte[] upperBounds;
+    private final int shift;
+
+    // Exact results of positions with at least tablebaseMoves tiles, or null
+    private Tablebase tablebase;
+    private int tablebaseMoves = CELLS + 1;
+
+    private final long[][] moveBuffer = new long[CELLS + 1][Board.BOARD_SIZE];
+    private final int[][] orderBuffer = new int[CELLS + 1][Board.BOARD_SIZE];
+
+    // Statistics and result of the last solve()
+    long nodes;
+    int bestColumn;
+
+    /**
+     * Creates a solver whose table holds 2^tableBits positions (9 bytes each).
+     */
+    public EndgameSolver(int tableBits) {
+        this.keys = new long[1 << tableBits];
+        this.upperBounds = new byte[1 << tableBits];
+        this.shift = Long.SIZE - tableBits;
+    }
+
+    /**
+     * Sets the tablebase probed in every position with few enough empty cells, which is not searched any further if
+     * it is in the table, or null (the default) to search every position.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        this.tablebaseMoves = tablebase != null ? CELLS - tablebase.getMaxEmpty() : CELLS + 1;
+    }
+
+    /**
+     * Returns the number of empty cells on the board.
+     */
+    public static int countEmptyCells(Board gameBoard) {
+        if (gameBoard instanceof BitBoard) {
+            BitBoard bitBoard = (BitBoard) gameBoard;
+            return CELLS - Long.bitCount(bitBoard.getPlayerTiles(1) | bitBoard.getPlayerTiles(2));
+        }
+        int empty = 0;
+        for (int[] row : gameBoard.getBoard()) {
+            for (int cell : row) {
+                if (cell == 0) {
+                    empty++;
+                }
+            }
+        }
+        return empty;
+    }
+
+    /**
+     * Returns how many moves (of both players) from a position with the given number of empty cells it takes until the
+     * game ends with the given score.
+     */
+    public static int pliesToEnd(int score, int emptyCells) {
+        if (score == 0) {
+            return emptyCells;
+        }
+        int n = CELLS + 1 - Math.abs(score);
+        return n - (CELLS - emptyCells);
+    }
+
+    /*
+     * Returns the exact score of gameBoard for playerNumber, who is to move. The best move is stored in bestColumn;
+     * among moves with the same score the one closest to the center is chosen.
+     */
+    public int solve(Board gameBoard, int playerNumber) {
+        long current = 0;
+        long mask = 0;
+        int[][] cells = gameBoard.getBoard();
+        for (int i=0; i<Board.BOARD_SIZE; i++) {
+            for (int j=0; j<Board.BOARD_SIZE; j++) {
+                if (cells[i][j] != 0) {
+                    long tile = 1L << (j * COLUMN_BITS + i);
+                    mask |= tile;
+                    if (cells[i][j] == playerNumber) {
+                        current |= tile;
+                    }
+                }
+            }
+        }
+        int moves = Long.bitCount(mask);
+
+        this.nodes = 0;
+        this.bestColumn = -1;
+        long possible = possibleMoves(mask);
+        long winning = winningCells(current, mask) & possible;
+        if (winning != 0) {
+            this.bestColumn = Long.numberOfTrailingZeros(winning) / COLUMN_BITS;
+            return CELLS - moves;
+        }
+
+        int bestScore = Integer.MIN_VALUE;
+        for (int column : AlphaBetaSearch.CENTER_ORDER) {
+            long move = possible & (COLUMN_MASK << (column * COLUMN_BITS));
+            if (move == 0) {
+                continue;
+            }
+            int score;
+            if (bestScore == Integer.MIN_VALUE) {
+                score = -this.solvePosition(current ^ mask, mask | move, moves + 1);
+            } else {
+                // Only solve the move exactly if a null-window search shows it beats the best move so far
+                score = -this.negamax(current ^ mask, mask | move, moves + 1, -bestScore - 1, -bestScore);
+                if (score > bestScore) {
+                    score = -this.solvePosition(current ^ mask, mask | move, moves + 1);
+                }
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                this.bestColumn = column;
+            }
+        }
+        return bestScore;
+    }
+
+    /*
+     * Narrows the score of the position down with null-window searches and returns it exactly.
+     */
+    private int solvePosition(long current, long mask, int moves) {
+        int min = -(CELLS - moves);
+        int max = CELLS + 1 - moves;
+        while (min < max) {
+            int middle = min + (max - min) / 2;
+            // Test close to 0 first, where most endgame scores are
+            if (middle <= 0 && min / 2 < middle) {
+                middle = min / 2;
+            } else if (middle >= 0 && max / 2 > middle) {
+                middle = max / 2;
+            }
+            int result = this.negamax(current, mask, moves, middle, middle + 1);
+            if (result <= middle) {
+                max = result;
+            } else {
+                min = result;
+            }
+        }
+        return min;
+    }
+
+    /*
+     * Returns the score of the position for the player to move, whose tiles are current. The score is exact if it
+     * lies strictly between alpha and beta, otherwise it is a bound on the exact score.
+     */
+    private int negamax(long current, long mask, int moves, int alpha, int beta) {
+        this.nodes++;
+        if (moves == CELLS) {
+            return 0;
+        }
+
+        long possible = possibleMoves(mask);
+        if ((winningCells(current, mask) & possible) != 0) {
+            return CELLS - moves;
+        }
+        if (moves >= this.tablebaseMoves) {
+            int score = this.tablebase.probe(current, mask);
+            if (score != Tablebase.NOT_FOUND) {
+                return score;
+            }
+        }
+
+        long opponentWins = winningCells(current ^ mask, mask);
+        long forced = possible & opponentWins;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0) {
+                // Two threats cannot both be blocked
+                return -(CELLS - 1 - moves);
+            }
+            possible = forced;
+        }
+        long candidates = possible & ~(opponentWins >>> 1);
+        if (candidates == 0) {
+            return -(CELLS - 1 - moves);
+        }
+
+        // The opponent cannot win with the next tile any more, and neither can we win before our tile after that
+        int min = Math.min(-(CELLS - 3 - moves), 0);
+        if (alpha < min) {
+            alpha = min;
+            if (alpha >= beta) {
+                return alpha;
+            }
+        }
+
+        long key = current + mask;
+        int index = (int) ((key * 0x9E3779B97F4A7C15L) >>> this.shift);
+        int max = this.keys[index] == (key | VALID) ? this.upperBounds[index] : Math.max(CELLS - 2 - moves, 0);
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) {
+                return beta;
+            }
+        }
+
+        long[] order = this.moveBuffer[moves];
+        int count = this.orderMoves(current, mask, candidates, order, this.orderBuffer[moves]);
+        for (int k=0; k<count; k++) {
+            long move = order[k];
+            int score = -this.negamax(current ^ mask, mask | move, moves + 1, -beta, -alpha);
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+
+        this.keys[index] = key | VALID;
+        this.upperBounds[index] = (byte) alpha;
+        return alpha;
+    }
+
+    /*
+     * Fills order with the candidate moves, the ones that create the most threats first and otherwise center first.
+     * Returns the number of moves.
+     */
+    private int orderMoves(long current, long mask, long candidates, long[] order, int[] scores) {
+        int count = 0;
+        for (int column : AlphaBetaSearch.CENTER_ORDER) {
+            long move = candidates & (COLUMN_MASK << (column * COLUMN_BITS));
+            if (move == 0) {
+                continue;
+            }
+            int score = Long.bitCount(winningCells(current | move, mask | move));
+
+            int k = count++;
+            while (k > 0 && scores[k-1] < score) {
+                scores[k] = scores[k-1];
+                order[k] = order[k-1];
+                k--;
+            }
+            scores[k] = score;
+            order[k] = move;
+        }
+        return count;
+    }
+
+    /*
+     * Returns the lowest empty cell of every column that is not full.
+     */
+    private static long possibleMoves(long mask) {
+        return (mask + BitBoard.BOTTOM_ROW) & BitBoard.FULL_BOARD;
+    }
+
+    /*
+     * Returns the empty cells where one more tile would complete a line of four for the owner of tiles.
+     */
+    static long winningCells(long tiles, long mask) {
+        long cells = 0;
+        for (int shift : DIRECTIONS) {
+            long left1 = tiles << shift;
+            long left2 = left1 & (tiles << (2 * shift));
+            long right1 = tiles >>> shift;
+            long right2 = right1 & (tiles >>> (2 * shift));
+            cells |= (left2 & (tiles << (3 * shift)))
+                    | (left2 & right1)
+                    | (left1 & right2)
+                    | (right2 & (tiles >>> (3 * shift)));
+        }
+        return cells & (BitBoard.FULL_BOARD ^ mask);
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Randomized consistency check for EndgameSolver. Plays random games up to a position with MIN_EMPTY to MAX_EMPTY
+ * empty cells and compares the solver with an AlphaBetaSearch that searches every line to the end of the game, whose
+ * value is then exactly 1.0, 0.0 or -1.0: the sign of solve() must equal that value, and the solver's bestColumn must
+ * be worth as much as the best move. Exits with status 1 on the first mismatch.
+ *
+ * Run with: java EndgameSolverCheck [positions] [seed]
+ */
+
+import java.util.Random;
+
+public class EndgameSolverCheck {
+
+    private static final int MIN_EMPTY = 12;
+    private static final int MAX_EMPTY = 14;
+
+    public static void main(String[] args) {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+
+        EndgameSolver solver = new EndgameSolver(20);
+        AlphaBetaSearch search = new AlphaBetaSearch(new MyPlayer());
+        search.setTranspositionTable(
+                new TranspositionTable(1 << 20, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+        BitBoard gameBoard = new BitBoard();
+
+        int wins = 0;
+        int ties = 0;
+        int losses = 0;
+        for (int n=0; n<positions; n++) {
+            int empty = MIN_EMPTY + random.nextInt(MAX_EMPTY - MIN_EMPTY + 1);
+            int player = randomPosition(gameBoard, empty, random);
+
+            int score = solver.solve(gameBoard, player);
+            int bestColumn = solver.bestColumn;
+            double value = search.search(gameBoard, empty - 1, player);
+            double solvedValue = Integer.signum(score);
+            double bestColumnValue = moveValue(search, gameBoard, bestColumn, empty, player);
+            if (value != solvedValue || bestColumnValue != value) {
+                System.out.println("Mismatch for player " + player + ": solver score " + score + " (column "
+                        + bestColumn + " worth " + bestColumnValue + "), alpha-beta " + value + " (column "
+                        + search.bestColumn + ")");
+                gameBoard.printBoard();
+                System.exit(1);
+            }
+            if (score > 0) {
+                wins++;
+            } else if (score == 0) {
+                ties++;
+            } else {
+                losses++;
+            }
+        }
+        System.out.println("OK: " + positions + " positions matched (" + wins + " won, " + ties + " tied, " + losses
+                + " lost by the player to move)");
+    }
+
+    /*
+     * Plays random moves from the empty board until empty cells are left and the game is not over, starting again
+     * whenever a game ends first or the player to move can win at once, which both searches find trivially. Returns
+     * the player to move.
+     */
+    private static int randomPosition(BitBoard gameBoard, int empty, Random random) {
+        while (true) {
+            gameBoard.copyFrom(new BitBoard());
+            int player = 1;
+            boolean over = false;
+            for (int cells=EndgameSolver.CELLS; cells>empty && !over; cells--) {
+                int move;
+                do {
+                    move = random.nextInt(Board.BOARD_SIZE);
+                } while (!gameBoard.isColumnOpen(move));
+                gameBoard.move(player, move);
+                over = gameBoard.checkIfGameOver(move) >= 0;
+                player = (player == 1 ? 2 : 1);
+            }
+            if (!over && !hasWinningMove(gameBoard, player)) {
+                return player;
+            }
+        }
+    }
+
+    private static boolean hasWinningMove(BitBoard gameBoard, int player) {
+        for (int j=0; j<Board.BOARD_SIZE; j++) {
+            if (gameBoard.move(player, j)) {
+                boolean won = gameBoard.checkIfGameOver(j) == player;
+                gameBoard.undoMove(j);
+                if (won) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns the exact value for player of playing column on gameBoard, which has the given number of empty cells.
+     */
+    private static double moveValue(AlphaBetaSearch search, BitBoard gameBoard, int column, int empty, int player) {
+        if (column < 0 || !gameBoard.move(player, column)) {
+            return Double.NaN;
+        }
+        double value;
+        int status = gameBoard.checkIfGameOver(column);
+        if (status >= 0) {
+            value = status == 0 ? 0.0 : (status == player ? 1.0 : -1.0);
+        } else {
+            value = -search.search(gameBoard, empty - 2, player == 1 ? 2 : 1);
+        }
+        gameBoard.undoMove(column);
+        return value;
+    }
+}
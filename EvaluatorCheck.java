@@ -0,0 +1,115 @@
+/**
+ * Randomized consistency check for IncrementalEvaluator. Plays random games on a Board and a BitBoard with an
+ * evaluator attached to each, randomly taking moves back, and compares the incremental evaluation with
+ * IncrementalEvaluator.evaluateFromScratch() after every change. On the BitBoard it also scores the children of every
+ * position with ScalarBatchEvaluator and with BatchEvaluator.create(), and compares every open column's value and the
+ * returned terminal mask with playing the move and evaluating it from scratch. Exits with status 1 on the first
+ * mismatch.
+ *
+ * Run with: java EvaluatorCheck [games] [seed]
+ * (add --add-modules jdk.incubator.vector to check VectorBatchEvaluator as well, see BatchEvaluator)
+ */
+
+import java.util.Random;
+
+public class EvaluatorCheck {
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+
+        BatchEvaluator[] batches = {new ScalarBatchEvaluator(), BatchEvaluator.create()};
+        double[] values = new double[Board.BOARD_SIZE];
+        System.out.println("Batch evaluator: " + batches[1].getClass().getName());
+
+        long checks = 0;
+        long children = 0;
+        Board[] boards = {new Board(), new BitBoard()};
+        for (Board gameBoard : boards) {
+            IncrementalEvaluator evaluator = new IncrementalEvaluator();
+            for (int g=0; g<games; g++) {
+                for (int j=0; j<Board.BOARD_SIZE; j++) {
+                    while (gameBoard.undoMove(j)) ;
+                }
+                evaluator.reset(gameBoard);
+                gameBoard.setListener(evaluator);
+
+                int[] played = new int[Board.BOARD_SIZE * Board.BOARD_SIZE];
+                int count = 0;
+                int player = 1;
+                while (true) {
+                    if (count > 0 && random.nextInt(4) == 0) {
+                        gameBoard.undoMove(played[--count]);
+                        player = (player == 1 ? 2 : 1);
+                    } else {
+                        int move = random.nextInt(Board.BOARD_SIZE);
+                        if (!gameBoard.move(player, move)) {
+                            continue;
+                        }
+                        played[count++] = move;
+                        if (gameBoard.checkIfGameOver(move) >= 0) {
+                            break;
+                        }
+                        player = (player == 1 ? 2 : 1);
+                    }
+
+                    for (int p=1; p<=2; p++) {
+                        double incremental = evaluator.evaluate(p);
+                        double reference = IncrementalEvaluator.evaluateFromScratch(gameBoard, p);
+                        checks++;
+                        if (incremental != reference) {
+                            System.out.println("Mismatch on " + gameBoard.getClass().getName() + " for player " + p
+                                    + ": incremental " + incremental + ", reference " + reference);
+                            gameBoard.printBoard();
+                            System.exit(1);
+                        }
+                        if (gameBoard instanceof BitBoard) {
+                            for (BatchEvaluator batch : batches) {
+                                children += checkChildren((BitBoard) gameBoard, p, batch, values);
+                            }
+                        }
+                    }
+                }
+                gameBoard.setListener(null);
+            }
+        }
+        System.out.println("OK: " + checks + " evaluations and " + children + " batched children matched");
+    }
+
+    /*
+     * Compares batch's values and terminal mask for the children of gameBoard with player to move against playing
+     * every open column and evaluating the result from scratch. Returns the number of children compared.
+     */
+    private static int checkChildren(BitBoard gameBoard, int player, BatchEvaluator batch, double[] values) {
+        int opponent = player == 1 ? 2 : 1;
+        int terminal = batch.evaluateChildren(gameBoard.getPlayerTiles(player), gameBoard.getPlayerTiles(opponent),
+                values);
+        int count = 0;
+        for (int j=0; j<Board.BOARD_SIZE; j++) {
+            if (!gameBoard.move(player, j)) {
+                if ((terminal & (1 << j)) != 0) {
+                    System.out.println("Mismatch in " + batch.getClass().getName() + ": full column " + j
+                            + " marked as terminal");
+                    gameBoard.printBoard();
+                    System.exit(1);
+                }
+                continue;
+            }
+            int status = gameBoard.checkIfGameOver(j);
+            double reference = status == player ? 1.0
+                    : (status == 0 ? 0.0 : IncrementalEvaluator.evaluateFromScratch(gameBoard, player));
+            gameBoard.undoMove(j);
+            count++;
+            boolean ended = (terminal & (1 << j)) != 0;
+            if (values[j] != reference || ended != (status >= 0)) {
+                System.out.println("Mismatch in " + batch.getClass().getName() + " for player " + player
+                        + " in column " + j + ": batch " + values[j] + (ended ? " (terminal)" : "")
+                        + ", reference " + reference + (status >= 0 ? " (terminal)" : ""));
+                gameBoard.printBoard();
+                System.exit(1);
+            }
+        }
+        return count;
+    }
+}
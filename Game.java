@@ -1,12 +1,40 @@
 /**
  * Class that runs a Connect Four game between two opponents.
  */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public class Game {
 
     private Board gameBoard;
+
+    // Copy of gameBoard handed to the players, reused on every turn
+    private Board playerBoard;
     private Player p1;
     private Player p2;
 
+    // If true, nothing is printed to System.out
+    private boolean quiet;
+
+    // Dimensions of the boards the games are played on
+    private BoardGeometry geometry = BoardGeometry.STANDARD;
+
+    // Statistics of the last game, indexed by player number
+    private long[] moveNanos = new long[3];
+    private int[] moveCounts = new int[3];
+    private boolean forfeited;
+
+    // Log every finished game is appended to, with the ids and seed recorded for it
+    private GameLog log;
+    private int player1Id;
+    private int player2Id;
+    private long seed;
+
+    // Columns played in the current game, including an invalid last move
+    private byte[] moves;
+    private int moveCount;
+
     /**
      * Initializes a game object with two concrete instances of the Player class that will compete against each other
      */
@@ -18,6 +46,59 @@ public class Game {
 
     }
 
+    /**
+     * If quiet is true the game does not print the result or forfeits to System.out. Boards are still printed when
+     * startGame is called with printBoard set to true.
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    /**
+     * Sets the dimensions of the board for the following games (BoardGeometry.STANDARD by default).
+     */
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry;
+    }
+
+    /**
+     * Appends every following game to log, or stops logging if log is null. The player ids are stored with every game
+     * so the log can tell the players apart; they must be between 0 and 255.
+     */
+    public void setLog(GameLog log, int player1Id, int player2Id) {
+        this.log = log;
+        this.player1Id = player1Id;
+        this.player2Id = player2Id;
+    }
+
+    /**
+     * Sets the seed stored with the following games in the log (0 by default). The game itself does not use it.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the total time the player spent choosing moves in the last game, in nanoseconds
+     */
+    public long getMoveNanos(int playerNumber) {
+        return this.moveNanos[playerNumber];
+    }
+
+    /**
+     * Returns the number of moves the player made in the last game
+     */
+    public int getMoveCount(int playerNumber) {
+        return this.moveCounts[playerNumber];
+    }
+
+    /**
+     * Returns true if the last game ended because a player made an invalid move
+     */
+    public boolean wasForfeited() {
+        return this.forfeited;
+    }
+
     /**
      * Starts the game. This method can be called multiple times on a single game object, and it will start a new game
      * each time.
@@ -30,7 +111,20 @@ public class Game {
     public int startGame(boolean printBoard) {
 
         // Initialize a new board for the game
-        this.gameBoard = new Board();
+        this.gameBoard = this.geometry.newBoard();
+        if (this.playerBoard == null || !this.playerBoard.getGeometry().equals(this.geometry)) {
+            this.playerBoard = this.geometry.newBoard();
+        }
+
+        this.moveNanos[1] = 0;
+        this.moveNanos[2] = 0;
+        this.moveCounts[1] = 0;
+        this.moveCounts[2] = 0;
+        this.forfeited = false;
+        if (this.moves == null || this.moves.length < this.geometry.getCellCount() + 1) {
+            this.moves = new byte[this.geometry.getCellCount() + 1];
+        }
+        this.moveCount = 0;
 
         // Boolean to track which players turn it is
         boolean player1Turn = true;
@@ -64,13 +158,21 @@ public class Game {
             }
 
             // Pass a copy of the board to currentPlayer and have it choose a move
-            int move = currentPlayer.chooseMove(new Board(this.gameBoard));
+            this.playerBoard.copyFrom(this.gameBoard);
+            long moveStart = System.nanoTime();
+            int move = currentPlayer.chooseMove(this.playerBoard);
+            this.moveNanos[currentPlayer.playerNumber] += System.nanoTime() - moveStart;
+            this.moveCounts[currentPlayer.playerNumber]++;
+            this.moves[this.moveCount++] = (byte) (move >= Byte.MIN_VALUE && move <= Byte.MAX_VALUE ? move : -1);
 
             // If currentPlayer chose an invalid move then it automatically loses
             if (!this.gameBoard.move(currentPlayer.playerNumber, move)) {
                 // Player made an invalid move and automatically loses
                 winner = (currentPlayer == this.p1 ? this.p2 : this.p1);
-                System.out.println("Player " + currentPlayer.playerNumber + " made an invalid move and forfeits.");
+                this.forfeited = true;
+                if (!this.quiet) {
+                    System.out.println("Player " + currentPlayer.playerNumber + " made an invalid move and forfeits.");
+                }
                 break;
             }
 
@@ -92,22 +194,48 @@ public class Game {
             player1Turn = !player1Turn;
         }
 
+        // A player that ponders has nothing left to search on the opponent's time
+        stopPondering(this.p1);
+        stopPondering(this.p2);
+
         // Print the final board
         if (printBoard) {
             this.gameBoard.printBoard();
         }
 
+        int result = winner == this.p1 ? 1 : (winner == this.p2 ? 2 : 0);
+        if (this.log != null) {
+            try {
+                this.log.append(result, this.forfeited, this.player1Id, this.player2Id, this.seed, this.moves,
+                        this.moveCount);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not log the game", e);
+            }
+        }
+
         // Report the outcome of the game
         if (winner == this.p1) {
-            System.out.println("Player 1 (X) Won!");
+            if (!this.quiet) {
+                System.out.println("Player 1 (X) Won!");
+            }
             return 1;
         } else if (winner == this.p2){
-            System.out.println("Player 2 (O) Won!");
+            if (!this.quiet) {
+                System.out.println("Player 2 (O) Won!");
+            }
             return 2;
         } else {
-            System.out.println("Tie Game!");
+            if (!this.quiet) {
+                System.out.println("Tie Game!");
+            }
             return 0;
         }
     }
 
+    private static void stopPondering(Player player) {
+        if (player instanceof MyPlayer) {
+            ((MyPlayer) player).stopPondering();
+        }
+    }
+
 }
@@ -0,0 +1,170 @@
+/**
+ * Append-only binary log of finished games, written by Game and read back by GameReplay. Every game takes 12 bytes
+ * plus one byte per move, about 35 bytes for a typical game, so a hundred million games fit in a few gigabytes:
+ *
+ *   file header: int magic, int version, byte rows, byte columns, byte connect
+ *   per game:    byte flags, byte player 1, byte player 2, long seed, byte move count, then one byte per move
+ *
+ * The low two bits of flags are the result (0 for a tie, 1 or 2 for the winner) and bit 2 is set if the game was
+ * forfeited, in which case the last move is the invalid one (-1 if it did not fit in a byte). Players are small ids
+ * chosen by whoever runs the games, for example the index of a player configuration; the seed is whatever the runner
+ * needs to play the game again, for example the seed the players were created from.
+ *
+ * Records are collected in a direct buffer and written to the end of the file through a FileChannel when the buffer
+ * fills, on flush() and on close(), so a crash loses at most the games still in the buffer. Appending is synchronized
+ * so one log can be shared by the threads of a Tournament.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class GameLog implements AutoCloseable {
+
+    static final int MAGIC = 0x4346474C; // "CFGL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 11;
+    static final int RECORD_HEADER_BYTES = 12;
+
+    static final int RESULT_MASK = 0x3;
+    static final int FORFEITED = 0x4;
+
+    private final BoardGeometry geometry;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long games;
+
+    private GameLog(BoardGeometry geometry, FileChannel channel) {
+        this.geometry = geometry;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a log of games played on the standard board, creating it if it does not exist.
+     */
+    public static GameLog open(Path file) throws IOException {
+        return open(file, BoardGeometry.STANDARD);
+    }
+
+    /**
+     * Opens a log of games played on boards of the given geometry, creating it if it does not exist. New games are
+     * appended after the games already in the file.
+     *
+     * @throws IOException              if the file is not a game log or is of another version
+     * @throws IllegalArgumentException if the file holds games of another geometry, or the geometry has more than 254
+     *                                  cells
+     */
+    public static GameLog open(Path file, BoardGeometry geometry) throws IOException {
+        if (geometry.getCellCount() > 254) {
+            throw new IllegalArgumentException("Cannot log games on a " + geometry + " board");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).put((byte) geometry.getRows()).put((byte) geometry.getColumns())
+                        .put((byte) geometry.getConnect());
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            } else {
+                BoardGeometry existing = readHeader(channel, file);
+                if (!existing.equals(geometry)) {
+                    throw new IllegalArgumentException(file + " holds games on a " + existing + " board, not "
+                            + geometry);
+                }
+                channel.position(channel.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new GameLog(geometry, channel);
+    }
+
+    /*
+     * Reads and checks the file header at the start of the channel and returns the geometry it names.
+     */
+    static BoardGeometry readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException(file + " is not a game log");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException(file + " is not a game log");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported game log version " + version + " in " + file);
+        }
+        return BoardGeometry.of(header.get(), header.get(), header.get());
+    }
+
+    public BoardGeometry getGeometry() {
+        return this.geometry;
+    }
+
+    /**
+     * Returns the number of games appended since the log was opened.
+     */
+    public synchronized long getGameCount() {
+        return this.games;
+    }
+
+    /**
+     * Appends a finished game. moves[0] to moves[count - 1] are the columns played, starting with player 1; for a
+     * forfeited game the last one is the invalid move.
+     *
+     * @throws IllegalArgumentException if result is not 0, 1 or 2, or there are more moves than the board has cells
+     *                                  plus one
+     */
+    public synchronized void append(int result, boolean forfeited, int player1, int player2, long seed, byte[] moves,
+                                    int count) throws IOException {
+        if (result < 0 || result > 2) {
+            throw new IllegalArgumentException("Invalid result " + result);
+        }
+        if (count > this.geometry.getCellCount() + 1) {
+            throw new IllegalArgumentException("Game has " + count + " moves");
+        }
+        if (this.buffer.remaining() < RECORD_HEADER_BYTES + count) {
+            this.drain();
+        }
+        this.buffer.put((byte) (result | (forfeited ? FORFEITED : 0)));
+        this.buffer.put((byte) player1);
+        this.buffer.put((byte) player2);
+        this.buffer.putLong(seed);
+        this.buffer.put((byte) count);
+        this.buffer.put(moves, 0, count);
+        this.games++;
+    }
+
+    /**
+     * Writes the buffered games to the file.
+     */
+    public synchronized void flush() throws IOException {
+        this.drain();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel.isOpen()) {
+            this.drain();
+            this.channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Reads the games of a GameLog one at a time and rebuilds them on a Board, for post-mortems and for extracting
+ * training positions from logged games. The file is read through a FileChannel into a reused direct buffer and the
+ * moves of the current game into a reused array, so reading does not allocate per game.
+ *
+ *   GameReplay replay = GameReplay.open(file);
+ *   while (replay.next()) {
+ *       Board board = replay.getGeometry().newBoard();
+ *       replay.replay(board);
+ *   }
+ *
+ * Every game starts at an offset returned by getOffset(), and seek() goes back to it, so an index of offsets gives
+ * random access to the games of a log.
+ *
+ * Run with: java GameReplay file to replay every game and check its result
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class GameReplay implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final BoardGeometry geometry;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+    // File offset of the first byte in the buffer, and of the current game
+    private long bufferOffset;
+    private long offset;
+
+    // The current game
+    private int flags;
+    private int player1;
+    private int player2;
+    private long seed;
+    private int moveCount;
+    private final byte[] moves;
+
+    private GameReplay(Path file, FileChannel channel, BoardGeometry geometry) {
+        this.file = file;
+        this.channel = channel;
+        this.geometry = geometry;
+        this.moves = new byte[256];
+        this.seek(GameLog.HEADER_BYTES);
+    }
+
+    /**
+     * Opens a game log for reading.
+     *
+     * @throws IOException if the file is not a game log or is of another version
+     */
+    public static GameReplay open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new GameReplay(file, channel, GameLog.readHeader(channel, file));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the geometry of the boards the games were played on.
+     */
+    public BoardGeometry getGeometry() {
+        return this.geometry;
+    }
+
+    /**
+     * Moves to the game that starts at the given offset; the next call to next() reads it.
+     */
+    public void seek(long offset) {
+        this.bufferOffset = offset;
+        this.offset = offset;
+        this.buffer.clear().flip();
+    }
+
+    /**
+     * Returns the offset of the current game, or after next() returned false, the end of the file.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return false at the end of the log
+     * @throws IOException if the file cannot be read or ends in the middle of a game
+     */
+    public boolean next() throws IOException {
+        this.offset = this.bufferOffset + this.buffer.position();
+        if (!this.fill(1)) {
+            return false;
+        }
+        if (!this.fill(GameLog.RECORD_HEADER_BYTES)) {
+            throw new IOException(this.file + " ends in the middle of the game at offset " + this.offset);
+        }
+        this.flags = this.buffer.get();
+        this.player1 = this.buffer.get() & 0xFF;
+        this.player2 = this.buffer.get() & 0xFF;
+        this.seed = this.buffer.getLong();
+        this.moveCount = this.buffer.get() & 0xFF;
+        if (!this.fill(this.moveCount)) {
+            throw new IOException(this.file + " ends in the middle of the game at offset " + this.offset);
+        }
+        this.buffer.get(this.moves, 0, this.moveCount);
+        return true;
+    }
+
+    /*
+     * Makes sure at least n bytes are in the buffer, reading more of the file if needed. Returns false if the file
+     * ends first.
+     */
+    private boolean fill(int n) throws IOException {
+        if (this.buffer.remaining() >= n) {
+            return true;
+        }
+        this.bufferOffset += this.buffer.position();
+        this.buffer.compact();
+        while (this.buffer.position() < n) {
+            long position = this.bufferOffset + this.buffer.position();
+            if (this.channel.read(this.buffer, position) < 0) {
+                break;
+            }
+        }
+        this.buffer.flip();
+        return this.buffer.remaining() >= n;
+    }
+
+    /**
+     * Returns 0 if the current game was a tie, or the number of the player who won.
+     */
+    public int getResult() {
+        return this.flags & GameLog.RESULT_MASK;
+    }
+
+    /**
+     * Returns true if the current game ended because the loser made an invalid move.
+     */
+    public boolean wasForfeited() {
+        return (this.flags & GameLog.FORFEITED) != 0;
+    }
+
+    public int getPlayer1() {
+        return this.player1;
+    }
+
+    public int getPlayer2() {
+        return this.player2;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Returns the number of moves of the current game, including the invalid move of a forfeited game.
+     */
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * Returns the number of valid moves of the current game, the ones replay() plays.
+     */
+    public int getPlies() {
+        return this.wasForfeited() ? this.moveCount - 1 : this.moveCount;
+    }
+
+    /**
+     * Returns the column of the given move, starting from 0.
+     */
+    public int getMove(int ply) {
+        return this.moves[ply];
+    }
+
+    /**
+     * Plays every valid move of the current game on gameBoard, which should be empty.
+     *
+     * @return the result of checkIfGameOver() after the last move
+     */
+    public int replay(Board gameBoard) {
+        int plies = this.getPlies();
+        this.replay(gameBoard, plies);
+        return plies == 0 ? -1 : gameBoard.checkIfGameOver(this.moves[plies - 1]);
+    }
+
+    /**
+     * Plays the first plies moves of the current game on gameBoard, which should be empty, and returns the number
+     * of the player to move next.
+     *
+     * @throws IllegalStateException if a move cannot be played, which means the log does not match the board
+     */
+    public int replay(Board gameBoard, int plies) {
+        int player = 1;
+        for (int k=0; k<plies; k++) {
+            if (!gameBoard.move(player, this.moves[k])) {
+                throw new IllegalStateException("Invalid move " + this.moves[k] + " at ply " + k + " of the game at "
+                        + "offset " + this.offset);
+            }
+            player = (player == 1 ? 2 : 1);
+        }
+        return player;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java GameReplay file");
+            return;
+        }
+        try (GameReplay replay = open(Paths.get(args[0]))) {
+            Board empty = replay.getGeometry().newBoard();
+            Board gameBoard = replay.getGeometry().newBoard();
+            long games = 0;
+            long moves = 0;
+            long mismatches = 0;
+            long[] results = new long[3];
+            long start = System.nanoTime();
+            while (replay.next()) {
+                gameBoard.copyFrom(empty);
+                int status = replay.replay(gameBoard);
+                // A forfeited game ends before the board decides it
+                if (!replay.wasForfeited() && status != replay.getResult()) {
+                    mismatches++;
+                }
+                games++;
+                moves += replay.getPlies();
+                results[replay.getResult()]++;
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            System.out.println("Games: " + games + " on a " + replay.getGeometry() + " board");
+            System.out.println("Player 1 wins: " + results[1] + ", player 2 wins: " + results[2]
+                    + ", ties: " + results[0]);
+            System.out.println("Replayed " + moves + " moves in " + elapsed + " sec ("
+                    + Math.round(moves / elapsed) + " moves/sec)");
+            System.out.println("Results that do not match the replayed board: " + mismatches);
+        }
+    }
+}
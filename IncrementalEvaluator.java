@@ -0,0 +1,194 @@
+/**
+ * Board evaluation that is kept up to date one tile at a time instead of rescanning the grid at every leaf.
+ *
+ * The evaluation looks at every window of CONNECT_GOAL slots in a row (horizontal, vertical or diagonal) that a
+ * player could still complete. For each player it keeps:
+ *
+ * - threats: windows that hold three of the player's tiles and none of the opponent's
+ * - open-window score: windows that hold one or two of the player's tiles and none of the opponent's
+ * - weighted-table sum: the weightedTable value of every slot the player occupies
+ *
+ * Attached to a board with Board.setListener(), the evaluator updates these numbers as move() and undoMove() change
+ * a single slot, touching only the windows through that slot. evaluate() is then O(1). The numbers are kept as
+ * integers, so the incremental result is exactly the same as evaluateFromScratch(). The windows come from
+ * WinningLines.
+ */
+
+import java.util.Arrays;
+
+public class IncrementalEvaluator implements BoardListener {
+
+    private static final int SIZE = Board.BOARD_SIZE;
+    private static final int GOAL = Board.CONNECT_GOAL;
+
+    // Score of a window by the number of tiles one player has in it, when the opponent has none
+    private static final int[] OPEN_WINDOW_SCORE = {0, 1, 4, 0, 0};
+
+    // Weights used to combine the three terms, and the scale used to map the total into (-1.0, 1.0)
+    private static final int THREAT_WEIGHT = 16;
+    private static final int OPEN_WINDOW_WEIGHT = 1;
+    static final int TABLE_WEIGHT = 1;
+    private static final double SCALE = 200.0;
+
+    private static final int WINDOWS = WinningLines.getWindowCount();
+
+    // Number of windows through each cell; the same numbers as MyPlayer's weightedTable
+    static final int[] CELL_WEIGHTS = cellWeights();
+
+    // counts[player][window] is the number of the player's tiles in the window; index 0 is unused
+    private final byte[][] counts = new byte[3][WINDOWS];
+    private final int[] threats = new int[3];
+    private final int[] openWindows = new int[3];
+    private final int[] weightedSums = new int[3];
+
+    /**
+     * Recomputes every count from the tiles on gameBoard. Call this after attaching the evaluator to a board that
+     * is not empty, or after the board was overwritten with copyFrom().
+     */
+    public void reset(Board gameBoard) {
+        for (byte[] playerCounts : this.counts) {
+            Arrays.fill(playerCounts, (byte) 0);
+        }
+        for (int p=0; p<3; p++) {
+            this.threats[p] = 0;
+            this.openWindows[p] = 0;
+            this.weightedSums[p] = 0;
+        }
+
+        int[][] cells = gameBoard.getBoard();
+        for (int i=0; i<SIZE; i++) {
+            for (int j=0; j<SIZE; j++) {
+                if (cells[i][j] != 0) {
+                    this.tilePlaced(cells[i][j], i, j);
+                }
+            }
+        }
+    }
+
+    public void tilePlaced(int player, int row, int column) {
+        this.update(player == 1 ? 1 : 2, row * SIZE + column, 1);
+    }
+
+    public void tileRemoved(int player, int row, int column) {
+        this.update(player == 1 ? 1 : 2, row * SIZE + column, -1);
+    }
+
+    /*
+     * Returns a value between -1.0 and 1.0 (exclusive) of how much the board favors playerNumber.
+     */
+    public double evaluate(int playerNumber) {
+        int me = playerNumber == 1 ? 1 : 2;
+        int opponent = 3 - me;
+        int total = THREAT_WEIGHT * (this.threats[me] - this.threats[opponent])
+                + OPEN_WINDOW_WEIGHT * (this.openWindows[me] - this.openWindows[opponent])
+                + TABLE_WEIGHT * (this.weightedSums[me] - this.weightedSums[opponent]);
+        return scale(total);
+    }
+
+    public int getThreats(int playerNumber) {
+        return this.threats[playerNumber == 1 ? 1 : 2];
+    }
+
+    /*
+     * Reference implementation: computes the same value as evaluate() by scanning every window of the board.
+     */
+    public static double evaluateFromScratch(Board gameBoard, int playerNumber) {
+        int me = playerNumber == 1 ? 1 : 2;
+        int[][] cells = gameBoard.getBoard();
+
+        int total = 0;
+        for (int w=0; w<WINDOWS; w++) {
+            int mine = 0;
+            int theirs = 0;
+            for (int k=0; k<GOAL; k++) {
+                int cell = WinningLines.getCell(w, k);
+                int tile = cells[cell / SIZE][cell % SIZE];
+                if (tile == 0) {
+                    continue;
+                }
+                if ((tile == 1 ? 1 : 2) == me) {
+                    mine++;
+                } else {
+                    theirs++;
+                }
+            }
+            if (theirs == 0) {
+                total += windowScore(mine);
+            } else if (mine == 0) {
+                total -= windowScore(theirs);
+            }
+        }
+
+        for (int i=0; i<SIZE; i++) {
+            for (int j=0; j<SIZE; j++) {
+                int tile = cells[i][j];
+                if (tile != 0) {
+                    int weight = TABLE_WEIGHT * CELL_WEIGHTS[i * SIZE + j];
+                    total += (tile == 1 ? 1 : 2) == me ? weight : -weight;
+                }
+            }
+        }
+        return scale(total);
+    }
+
+    /*
+     * Adds (delta = 1) or removes (delta = -1) one of player's tiles at cell and updates the windows through it.
+     */
+    private void update(int player, int cell, int delta) {
+        int opponent = 3 - player;
+        byte[] mine = this.counts[player];
+        byte[] theirs = this.counts[opponent];
+
+        this.weightedSums[player] += delta * CELL_WEIGHTS[cell];
+        int windows = WinningLines.getWindowCount(cell);
+        for (int k=0; k<windows; k++) {
+            int w = WinningLines.getWindow(cell, k);
+            int before = mine[w];
+            int after = before + delta;
+            int other = theirs[w];
+
+            if (other == 0) {
+                // The window only holds player's tiles, its score changes with the count
+                this.addWindow(player, before, -1);
+                this.addWindow(player, after, 1);
+            }
+            if (before == 0 && other > 0) {
+                // The opponent's window is blocked by the new tile
+                this.addWindow(opponent, other, -1);
+            } else if (after == 0 && other > 0) {
+                // The opponent's window is open again
+                this.addWindow(opponent, other, 1);
+            }
+            mine[w] = (byte) after;
+        }
+    }
+
+    private void addWindow(int player, int count, int sign) {
+        if (count == GOAL - 1) {
+            this.threats[player] += sign;
+        } else if (count < OPEN_WINDOW_SCORE.length) {
+            this.openWindows[player] += sign * OPEN_WINDOW_SCORE[count];
+        }
+    }
+
+    static int windowScore(int count) {
+        if (count == GOAL - 1) {
+            return THREAT_WEIGHT;
+        } else if (count < OPEN_WINDOW_SCORE.length) {
+            return OPEN_WINDOW_WEIGHT * OPEN_WINDOW_SCORE[count];
+        }
+        return 0;
+    }
+
+    static double scale(int total) {
+        return total / (Math.abs(total) + SCALE);
+    }
+
+    private static int[] cellWeights() {
+        int[] weights = new int[SIZE * SIZE];
+        for (int cell=0; cell<weights.length; cell++) {
+            weights[cell] = WinningLines.getWindowCount(cell);
+        }
+        return weights;
+    }
+}
@@ -1,5 +1,7 @@
 /**
  * Main class to run a single game of Connect Four between two opponents.
+ *
+ * Run with: java Main [rows columns connect] to play a variant, e.g. java Main 6 7 4
  */
 public class Main {
 
@@ -9,6 +11,10 @@ public class Main {
         Player p2 = new RandomPlayer();
 
         Game gameState = new Game(p1, p2);
+        if (args.length >= 3) {
+            gameState.setGeometry(BoardGeometry.of(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                    Integer.parseInt(args[2])));
+        }
         int winner = gameState.startGame(true);
     }
 }
@@ -0,0 +1,386 @@
+/**
+ * Connect Four player that chooses moves with Monte Carlo tree search (UCT) instead of a heuristic: it plays many
+ * random games (playouts) from the current position, grows a tree of the moves that were tried, and plays the move
+ * that was tried most often. Moves that win more playouts are tried more often, while moves that were tried little
+ * keep getting a chance through the UCT exploration term.
+ *
+ * The tree lives in a fixed pool of nodes kept in parallel arrays rather than one object per node. The children of a
+ * node are allocated together, so a node only stores its first child and the number of children. Visit and win
+ * counters are atomic arrays and several threads grow the same tree at once (tree parallelism): a thread that walks
+ * through a node adds a visit right away, before its playout is finished, which counts as a loss until the result is
+ * added (a virtual loss) and steers the other threads to other moves meanwhile. A node is expanded by whichever thread
+ * claims it first.
+ *
+ * The tree is kept between moves: if the position after the player's last move and the opponent's reply is in the
+ * tree, its subtree becomes the new root and the playouts already made there are reused. The pool is cleared once it
+ * is more than RESET_FILL full at the start of a move.
+ *
+ * Every move is searched for a number of playouts or for a time budget, whichever is set; chooseMove() prints the
+ * number of playouts per second unless verbose is off. Only the standard board is supported.
+ */
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MctsPlayer extends Player {
+
+    // UCT exploration constant, sqrt(2) for results between 0 and 1
+    private static final double EXPLORATION = Math.sqrt(2.0);
+
+    // Fraction of the pool in use above which the tree is not kept for the next move
+    private static final double RESET_FILL = 0.75;
+
+    // Values of terminal[]: not decided yet, or decided by the move into the node
+    private static final byte OPEN = 0;
+    private static final byte WIN = 1;
+    private static final byte TIE = 2;
+
+    // Values of expanded[]
+    private static final int LEAF = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+
+    // Node pool. wins[n] counts playouts through n won by the player who moved into n as 2, ties as 1
+    private final int capacity;
+    private final int[] firstChild;
+    private final byte[] childCount;
+    private final byte[] column;
+    private final byte[] terminal;
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray wins;
+    private final AtomicIntegerArray expanded;
+    private final AtomicInteger nextFree = new AtomicInteger();
+
+    private long playoutBudget = 20000;
+    private long timeBudgetMillis = 0;
+    private int threads = 1;
+    private boolean verbose = true;
+    private ExecutorService pool;
+    private SearchMetrics metrics;
+    private final long seed;
+
+    // Position at the root, whose turn it is there, and the child played from it by the last move
+    private final BitBoard rootBoard = new BitBoard();
+    private int root = -1;
+    private int rootPlayer;
+    private int playedChild = -1;
+
+    // Results of the last move
+    long playouts;
+    long elapsedNanos;
+
+    /**
+     * Creates a player with room for 2^20 nodes.
+     */
+    public MctsPlayer() {
+        this(1 << 20, System.nanoTime());
+    }
+
+    /**
+     * Creates a player with room for the given number of nodes (each takes about 19 bytes) whose playouts are
+     * reproducible for a given seed when it searches on one thread for a number of playouts.
+     */
+    public MctsPlayer(int nodes, long seed) {
+        this.capacity = Math.max(Board.BOARD_SIZE + 1, nodes);
+        this.firstChild = new int[this.capacity];
+        this.childCount = new byte[this.capacity];
+        this.column = new byte[this.capacity];
+        this.terminal = new byte[this.capacity];
+        this.visits = new AtomicIntegerArray(this.capacity);
+        this.wins = new AtomicIntegerArray(this.capacity);
+        this.expanded = new AtomicIntegerArray(this.capacity);
+        this.seed = seed;
+    }
+
+    public void setPlayerNumber(int number) {
+        this.playerNumber = number;
+    }
+
+    /**
+     * Sets the number of playouts per move (20000 by default). Ignored while a time budget is set.
+     */
+    public void setPlayouts(long playouts) {
+        this.playoutBudget = Math.max(1, playouts);
+    }
+
+    /**
+     * Sets a wall-clock budget per move; 0 (the default) uses the playout count instead.
+     */
+    public void setTimeBudget(long millis) {
+        this.timeBudgetMillis = millis;
+    }
+
+    /**
+     * Sets how many threads grow the tree (1 by default), including the thread that calls chooseMove().
+     */
+    public void setThreads(int threads) {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+            this.pool = null;
+        }
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * If verbose is false chooseMove does not print the search results to System.out (true by default).
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Sets the totals that every move is added to, with playouts counted as nodes, or null (the default) to keep none.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the number of playouts per second of the last move.
+     */
+    public double getPlayoutsPerSecond() {
+        return this.elapsedNanos == 0 ? 0.0 : this.playouts / (this.elapsedNanos / 1e9);
+    }
+
+    public int chooseMove(Board gameBoard) {
+        long start = System.nanoTime();
+        this.moveToRoot(gameBoard);
+
+        long deadline = this.timeBudgetMillis > 0 ? start + this.timeBudgetMillis * 1000000L : Long.MAX_VALUE;
+        long budget = this.timeBudgetMillis > 0 ? Long.MAX_VALUE : this.playoutBudget;
+        AtomicLong counter = new AtomicLong();
+
+        Future<?>[] helpers = new Future<?>[this.threads - 1];
+        if (this.threads > 1) {
+            if (this.pool == null) {
+                this.pool = Executors.newFixedThreadPool(this.threads - 1, (task) -> {
+                    Thread thread = new Thread(task, "mcts");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            for (int t=0; t<helpers.length; t++) {
+                long helperSeed = this.seed ^ ((t + 1) * 0x9E3779B97F4A7C15L) ^ start;
+                helpers[t] = this.pool.submit(() -> this.grow(counter, budget, deadline, helperSeed));
+            }
+        }
+        this.grow(counter, budget, deadline, this.seed ^ this.rootBoard.getHash());
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Search was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A search thread failed", e.getCause());
+            }
+        }
+
+        // Play the most visited move
+        int best = -1;
+        for (int k=0; k<this.childCount[this.root]; k++) {
+            int child = this.firstChild[this.root] + k;
+            if (best < 0 || this.visits.get(child) > this.visits.get(best)) {
+                best = child;
+            }
+        }
+        this.playedChild = best;
+        // Every thread that ran out of playouts took one more number from counter than it played
+        this.playouts = Math.min(counter.get(), budget);
+        this.elapsedNanos = System.nanoTime() - start;
+
+        int bestVisits = Math.max(1, this.visits.get(best));
+        double value = this.wins.get(best) / (double) bestVisits - 1.0;
+        if (this.metrics != null) {
+            this.metrics.record(MoveMetrics.Source.SEARCH, 0, this.playouts, this.playouts, 0, 0, 0,
+                    this.elapsedNanos);
+        }
+        if (this.verbose) {
+            System.out.println(value);
+            System.out.println("Playouts: " + this.playouts + ", Threads: " + this.threads + ", Tree nodes: "
+                    + this.nextFree.get());
+            System.out.println("Playouts/sec: " + Math.round(this.getPlayoutsPerSecond()));
+            System.out.println("Elapsed Time: " + this.elapsedNanos / 1e9 + " sec");
+        }
+        return this.column[best];
+    }
+
+    /*
+     * Makes the root the node of gameBoard: the grandchild of the old root reached by the last move and the
+     * opponent's reply if the tree has it, otherwise a new tree.
+     */
+    private void moveToRoot(Board gameBoard) {
+        int next = -1;
+        if (this.playedChild >= 0 && this.nextFree.get() <= this.capacity * RESET_FILL
+                && this.expanded.get(this.playedChild) == EXPANDED) {
+            BitBoard board = new BitBoard();
+            board.copyFrom(this.rootBoard);
+            board.move(this.rootPlayer, this.column[this.playedChild]);
+            int opponent = this.rootPlayer == 1 ? 2 : 1;
+            for (int k=0; k<this.childCount[this.playedChild] && next < 0; k++) {
+                int child = this.firstChild[this.playedChild] + k;
+                board.move(opponent, this.column[child]);
+                if (board.getHash() == gameBoard.getHash()) {
+                    next = child;
+                }
+                board.undoMove(this.column[child]);
+            }
+        }
+
+        if (next < 0) {
+            this.nextFree.set(0);
+            next = this.allocate(1);
+            this.initialize(next, -1, OPEN);
+        }
+        this.root = next;
+        this.rootBoard.copyFrom(gameBoard);
+        this.rootPlayer = this.playerNumber;
+        this.playedChild = -1;
+        if (this.expanded.get(this.root) != EXPANDED) {
+            this.expand(this.root, this.rootBoard, this.rootPlayer);
+        }
+    }
+
+    /*
+     * Runs playouts from the root until counter reaches budget or deadline passes.
+     */
+    private void grow(AtomicLong counter, long budget, long deadline, long threadSeed) {
+        Rollout rollout = new Rollout(threadSeed);
+        BitBoard board = new BitBoard();
+        int[] path = new int[Board.BOARD_SIZE * Board.BOARD_SIZE + 1];
+
+        while (counter.getAndIncrement() < budget) {
+            board.copyFrom(this.rootBoard);
+            int node = this.root;
+            int player = this.rootPlayer;
+            int length = 0;
+            path[length++] = node;
+            this.visits.incrementAndGet(node);
+
+            // Select down to a leaf, expanding it if it has been visited before
+            int winner = -1;
+            while (true) {
+                if (this.terminal[node] != OPEN) {
+                    // The player who moved into the node decided the game
+                    winner = this.terminal[node] == TIE ? 0 : (player == 1 ? 2 : 1);
+                    break;
+                }
+                if (this.expanded.get(node) != EXPANDED) {
+                    if (this.visits.get(node) < 2 || !this.expanded.compareAndSet(node, LEAF, EXPANDING)
+                            || !this.expand(node, board, player)) {
+                        break;
+                    }
+                }
+                node = this.select(node);
+                board.move(player, this.column[node]);
+                this.visits.incrementAndGet(node);
+                path[length++] = node;
+                player = (player == 1 ? 2 : 1);
+            }
+
+            if (winner < 0) {
+                winner = rollout.play(board, player);
+            }
+
+            // Add the result for the player who moved into each node; the visits were added on the way down
+            int mover = this.rootPlayer == 1 ? 2 : 1;
+            for (int k=0; k<length; k++) {
+                if (winner == 0) {
+                    this.wins.addAndGet(path[k], 1);
+                } else if (winner == mover) {
+                    this.wins.addAndGet(path[k], 2);
+                }
+                mover = (mover == 1 ? 2 : 1);
+            }
+
+            if (System.nanoTime() > deadline) {
+                break;
+            }
+        }
+    }
+
+    /*
+     * Returns the child of node with the highest UCT score, or its first unvisited child.
+     */
+    private int select(int node) {
+        double logVisits = Math.log(Math.max(1, this.visits.get(node)));
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int k=0; k<this.childCount[node]; k++) {
+            int child = this.firstChild[node] + k;
+            int n = this.visits.get(child);
+            if (n == 0) {
+                return child;
+            }
+            double score = this.wins.get(child) / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+            if (score > bestScore) {
+                bestScore = score;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Allocates and initializes the children of node, one per open column of board, marking the ones whose move ends
+     * the game. Returns false, leaving node a leaf, if the pool is full.
+     */
+    private boolean expand(int node, Board board, int player) {
+        int count = 0;
+        for (int i=0; i<Board.BOARD_SIZE; i++) {
+            if (board.isColumnOpen(i)) {
+                count++;
+            }
+        }
+        int first = this.allocate(count);
+        if (first < 0) {
+            this.expanded.set(node, LEAF);
+            return false;
+        }
+
+        int child = first;
+        for (int i : AlphaBetaSearch.CENTER_ORDER) {
+            if (!board.isColumnOpen(i)) {
+                continue;
+            }
+            board.move(player, i);
+            int status = board.checkIfGameOver(i);
+            board.undoMove(i);
+            this.initialize(child++, i, status < 0 ? OPEN : (status == 0 ? TIE : WIN));
+        }
+        this.firstChild[node] = first;
+        this.childCount[node] = (byte) count;
+        // Publishes the children to threads that read expanded[node]
+        this.expanded.set(node, EXPANDED);
+        return true;
+    }
+
+    private void initialize(int node, int move, byte result) {
+        this.column[node] = (byte) move;
+        this.terminal[node] = result;
+        this.childCount[node] = 0;
+        this.visits.set(node, 0);
+        this.wins.set(node, 0);
+        this.expanded.set(node, LEAF);
+    }
+
+    /*
+     * Reserves count consecutive nodes and returns the first, or -1 if the pool does not have that many left.
+     */
+    private int allocate(int count) {
+        while (true) {
+            int first = this.nextFree.get();
+            if (first + count > this.capacity) {
+                return -1;
+            }
+            if (this.nextFree.compareAndSet(first, first + count)) {
+                return first;
+            }
+        }
+    }
+}
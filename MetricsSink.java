@@ -0,0 +1,38 @@
+/**
+ * Receives the metrics of every move a MyPlayer chooses. Called on the thread that called chooseMove(), after the
+ * move was chosen, so a slow sink slows the player down.
+ */
+public interface MetricsSink {
+
+    /**
+     * Prints the metrics of every move to System.out, which is what MyPlayer does by default.
+     */
+    MetricsSink CONSOLE = (metrics) -> {
+        if (metrics.getSource() == MoveMetrics.Source.BOOK) {
+            System.out.println("Book move: " + metrics.getColumn());
+            return;
+        }
+        if (metrics.getSource() == MoveMetrics.Source.CACHE) {
+            String depth = metrics.getDepth() == PositionCache.EXACT_DEPTH ? "solved" : "depth " + metrics.getDepth();
+            System.out.println("Cached move: " + metrics.getColumn() + " (" + depth + ", value " + metrics.getValue()
+                    + ")");
+            return;
+        }
+        System.out.println(metrics.getValue());
+        if (metrics.getSource() == MoveMetrics.Source.SOLVER) {
+            String result = metrics.getValue() > 0 ? "win" : (metrics.getValue() < 0 ? "loss" : "tie");
+            System.out.println("Solved: " + result + " in " + metrics.getDepth() + " moves");
+        } else {
+            System.out.println("Depth: " + metrics.getDepth() + ", Threads: " + metrics.getThreads()
+                    + (metrics.getSource() == MoveMetrics.Source.PONDER ? ", pondered" : ""));
+        }
+        System.out.println("Nodes: " + metrics.getNodes() + ", Leaves: " + metrics.getLeaves()
+                + ", Cutoffs: " + metrics.getCutoffs());
+        if (metrics.getTableProbes() > 0) {
+            System.out.println("Table hit rate: " + (double) metrics.getTableHits() / metrics.getTableProbes());
+        }
+        System.out.println("Elapsed Time: " + metrics.getNanos() / 1e9 + " sec");
+    };
+
+    void moveChosen(MoveMetrics metrics);
+}
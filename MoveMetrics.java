@@ -0,0 +1,109 @@
+/**
+ * What MyPlayer's search did to choose one move: where the move came from, its value and the work it took. Passed to
+ * a MetricsSink after every move; only created when a sink is set.
+ */
+public final class MoveMetrics {
+
+    /**
+     * SEARCH for a heuristic search, SOLVER for an exact endgame solve, BOOK for an opening book move, CACHE for a
+     * result found in a PositionCache, PONDER for a search started on the opponent's time.
+     */
+    public enum Source { SEARCH, SOLVER, BOOK, CACHE, PONDER }
+
+    private final int playerNumber;
+    private final int column;
+    private final double value;
+    private final Source source;
+    private final int depth;
+    private final int threads;
+    private final long nodes;
+    private final long leaves;
+    private final long cutoffs;
+    private final long tableProbes;
+    private final long tableHits;
+    private final long nanos;
+
+    public MoveMetrics(int playerNumber, int column, double value, Source source, int depth, int threads, long nodes,
+                       long leaves, long cutoffs, long tableProbes, long tableHits, long nanos) {
+        this.playerNumber = playerNumber;
+        this.column = column;
+        this.value = value;
+        this.source = source;
+        this.depth = depth;
+        this.threads = threads;
+        this.nodes = nodes;
+        this.leaves = leaves;
+        this.cutoffs = cutoffs;
+        this.tableProbes = tableProbes;
+        this.tableHits = tableHits;
+        this.nanos = nanos;
+    }
+
+    public int getPlayerNumber() {
+        return this.playerNumber;
+    }
+
+    public int getColumn() {
+        return this.column;
+    }
+
+    /**
+     * Returns the value of the move for the player, between -1.0 and 1.0.
+     */
+    public double getValue() {
+        return this.value;
+    }
+
+    public Source getSource() {
+        return this.source;
+    }
+
+    /**
+     * Returns the deepest depth searched completely, or for a solved position the number of moves until the game
+     * ends.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Returns the number of positions scored with the heuristic.
+     */
+    public long getLeaves() {
+        return this.leaves;
+    }
+
+    public long getCutoffs() {
+        return this.cutoffs;
+    }
+
+    public long getTableProbes() {
+        return this.tableProbes;
+    }
+
+    public long getTableHits() {
+        return this.tableHits;
+    }
+
+    /**
+     * Returns the wall-clock time spent choosing the move, in nanoseconds.
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Returns the nodes searched per second.
+     */
+    public double getNodesPerSecond() {
+        return this.nanos == 0 ? 0.0 : this.nodes / (this.nanos / 1e9);
+    }
+}
@@ -1,5 +1,11 @@
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Contains a heuristic to check board favorability.
@@ -8,6 +14,63 @@ public class MyPlayer extends Player {
 
     Random rand;
 
+    /**
+     * NEGAMAX searches every move to the full depth. ALPHA_BETA returns the same move but skips moves that cannot
+     * change the result. Boards of a non-standard BoardGeometry are always searched with NEGAMAX.
+     */
+    public enum SearchMode { NEGAMAX, ALPHA_BETA }
+
+    /**
+     * HEURISTIC scores leaves with heuristic(), which rescans the board. INCREMENTAL scores them with an
+     * IncrementalEvaluator that is updated as tiles are placed and removed; on the standard board the children of
+     * a frontier node are scored together by a BatchEvaluator, with the same values. Only used in ALPHA_BETA mode.
+     */
+    public enum Evaluation { HEURISTIC, INCREMENTAL }
+
+    private SearchMode searchMode = SearchMode.NEGAMAX;
+    private Evaluation evaluation = Evaluation.HEURISTIC;
+    private int searchDepth = 7;
+    private long timeBudgetMillis = 0;
+    private MetricsSink sink = MetricsSink.CONSOLE;
+    private SearchMetrics metrics;
+    private volatile AlphaBetaSearch alphaBeta;
+    private TranspositionTable table;
+    private int threads = 1;
+    private boolean symmetryReduction;
+    private volatile ParallelSearch parallel;
+
+    // True while chooseMove() runs a search that stop() can end
+    private volatile boolean stoppable;
+    private OpeningBook book;
+    private int solverThreshold = 24;
+    private EndgameSolver solver;
+    private Tablebase tablebase;
+    private PositionCache cache;
+    private final long[] cacheEntry = new long[2];
+
+    // Pondering: the position expected after the opponent's predicted reply is searched on ponderThread with the
+    // alphaBeta search, which chooseMove() only uses again after the ponder search has finished or been stopped
+    private boolean pondering;
+    private ExecutorService ponderThread;
+    private Future<?> ponderTask;
+    private BitBoard ponderBoard;
+    private long ponderHash;
+    private long ponderStart;
+    private double ponderValue;
+
+    // With a time budget, the ponder search gives up after this many budgets even if the opponent has not moved
+    private static final int PONDER_BUDGETS = 10;
+
+    // Mixed into the cache keys of positions scored with the incremental evaluation
+    private static final long INCREMENTAL_CACHE_KEY = 0x9E3779B97F4A7C15L;
+
+    // Best column found at the top level of the last searchValue() call
+    int bestColumn;
+
+    // Number of positions visited and of positions scored with heuristic() by searchValue() since the last reset
+    long nodesSearched;
+    long leavesSearched;
+
     private class Move {
         int move;
         double value;
@@ -27,18 +90,572 @@ public class MyPlayer extends Player {
         this.playerNumber = number;
     }
 
+    /**
+     * If verbose is false chooseMove does not print the search results to System.out (true by default). Same as
+     * setMetricsSink(verbose ? MetricsSink.CONSOLE : null).
+     */
+    public void setVerbose(boolean verbose) {
+        this.sink = verbose ? MetricsSink.CONSOLE : null;
+    }
+
+    /**
+     * Sets the sink that receives the metrics of every chosen move, or null to report nothing. The default prints
+     * them to System.out.
+     */
+    public void setMetricsSink(MetricsSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Sets the totals that every chosen move is added to, or null (the default) to keep none. One SearchMetrics can
+     * be shared by several players on several threads.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.stopPondering();
+        this.searchMode = searchMode;
+    }
+
+    public void setEvaluation(Evaluation evaluation) {
+        this.stopPondering();
+        this.evaluation = evaluation;
+        if (this.alphaBeta != null) {
+            this.alphaBeta.setIncrementalEvaluation(evaluation == Evaluation.INCREMENTAL);
+        }
+        if (this.parallel != null) {
+            this.parallel.shutdown();
+            this.parallel = null;
+        }
+    }
+
+    /**
+     * Sets a wall-clock budget per move for ALPHA_BETA mode. With a budget the search deepens one level at a time
+     * until the budget runs out and plays the best move of the deepest completed level. 0 (the default) searches to
+     * the fixed search depth instead.
+     */
+    public void setTimeBudget(long millis) {
+        this.stopPondering();
+        this.timeBudgetMillis = millis;
+    }
+
+    /**
+     * Sets how many threads ALPHA_BETA mode searches with (1 by default). With more than one thread the search shares
+     * a transposition table between the threads, creating one if none was set.
+     */
+    public void setThreads(int threads) {
+        this.stopPondering();
+        if (this.parallel != null) {
+            this.parallel.shutdown();
+            this.parallel = null;
+        }
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the transposition table used in ALPHA_BETA mode, or null to search without one.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.stopPondering();
+        this.table = table;
+        if (this.alphaBeta != null) {
+            this.alphaBeta.setTranspositionTable(table);
+        }
+        if (this.parallel != null) {
+            this.parallel.shutdown();
+            this.parallel = null;
+        }
+    }
+
+    /**
+     * If true, ALPHA_BETA mode treats a position and its mirror image as the same position: mirrored moves of a
+     * symmetric position are searched once, and the transposition table keeps one entry per mirrored pair (false by
+     * default).
+     */
+    public void setSymmetryReduction(boolean symmetryReduction) {
+        this.stopPondering();
+        this.symmetryReduction = symmetryReduction;
+        if (this.alphaBeta != null) {
+            this.alphaBeta.setSymmetryReduction(symmetryReduction);
+        }
+        if (this.parallel != null) {
+            this.parallel.setSymmetryReduction(symmetryReduction);
+        }
+    }
+
+    /**
+     * Sets the number of empty cells at or below which chooseMove solves the position exactly with an EndgameSolver
+     * instead of searching it (24 by default). 0 never uses the solver.
+     */
+    public void setSolverThreshold(int emptyCells) {
+        this.solverThreshold = emptyCells;
+    }
+
+    /**
+     * Sets the tablebase the endgame solver stops at, or null (the default) to solve every position to the end.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        if (this.solver != null) {
+            this.solver.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Sets the opening book consulted before searching, or null to always search. Positions that are not in the book
+     * are searched as usual.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Asks a running chooseMove() to return as soon as possible with the best move it has found so far. Can be called
+     * from any thread. Only the ALPHA_BETA search can be stopped; the endgame solver and the NEGAMAX search run to the
+     * end. A stop that arrives before the search has started is ignored. Returns true if a search that can be stopped
+     * was running.
+     */
+    public boolean stop() {
+        if (!this.stoppable) {
+            return false;
+        }
+        AlphaBetaSearch alphaBeta = this.alphaBeta;
+        if (alphaBeta != null) {
+            alphaBeta.stop();
+        }
+        ParallelSearch parallel = this.parallel;
+        if (parallel != null) {
+            parallel.stop();
+        }
+        return true;
+    }
+
+    /**
+     * Forgets everything learned from earlier moves: the transposition table's entries and the alpha-beta search's
+     * killer moves and history scores. The next move is then chosen exactly as by a new player with the same
+     * settings. Must not be called while chooseMove() is running.
+     */
+    public void clearSearchState() {
+        this.stopPondering();
+        if (this.table != null) {
+            this.table.clear();
+        }
+        if (this.alphaBeta != null) {
+            this.alphaBeta.clearHeuristics();
+        }
+        if (this.parallel != null) {
+            this.parallel.shutdown();
+            this.parallel = null;
+        }
+    }
+
+    /**
+     * Sets the persistent cache consulted before searching and updated after every search, or null to use none.
+     * A cached result is played if it was solved or, without a time budget, searched at least as deep as the search
+     * depth. Results of the two evaluations are kept apart, since their scores differ.
+     */
+    public void setPositionCache(PositionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * If true, after returning a move in single-threaded ALPHA_BETA mode the player keeps searching in the background
+     * on the position it expects after the opponent's reply, the second move of its principal variation (false by
+     * default). If the opponent plays that reply, the next chooseMove() continues the running search instead of
+     * starting over: with a fixed depth it returns as soon as that search is done, with a time budget as soon as the
+     * search has run for the budget, counting the time it ran while the opponent was thinking. Any other reply stops
+     * the background search, and so does a change of the search settings. With a time budget the background search
+     * ends by itself after PONDER_BUDGETS budgets. Game stops it when the game is over.
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+        if (!pondering) {
+            this.stopPondering();
+            if (this.ponderThread != null) {
+                this.ponderThread.shutdown();
+                this.ponderThread = null;
+            }
+        }
+    }
+
+    /**
+     * Stops the background search started by pondering, for example when the game is over. The next chooseMove()
+     * starts pondering again.
+     */
+    public void stopPondering() {
+        if (this.ponderTask != null) {
+            this.alphaBeta.stop();
+            this.awaitPondering(Long.MAX_VALUE);
+            this.ponderTask = null;
+        }
+    }
+
+    /**
+     * Sets how many moves past the next one the search looks ahead (7 by default).
+     */
+    public void setSearchDepth(int searchDepth) {
+        this.stopPondering();
+        this.searchDepth = searchDepth;
+    }
+
 
     public int chooseMove(Board gameBoard) {
 
         long start = System.nanoTime();
 
-        Move bestMove = search(gameBoard, 7, this.playerNumber);
-        System.out.println(bestMove.value);
+        // Variants of other dimensions are always searched with the plain negamax search
+        boolean standard = gameBoard.getGeometry() == BoardGeometry.STANDARD;
+
+        // If the opponent played the predicted reply, the ponder search is already searching this position
+        boolean pondered = false;
+        if (this.ponderTask != null) {
+            // stop() ends the wait for the ponder search like any other search
+            this.stoppable = true;
+            pondered = this.finishPondering(gameBoard);
+            this.stoppable = false;
+        }
+
+        if (this.book != null && standard && !pondered) {
+            int bookMove = this.book.lookup(gameBoard, this.playerNumber);
+            if (bookMove >= 0) {
+                this.report(bookMove, 0.0, MoveMetrics.Source.BOOK, 0, 0, 0, 0, 0, 0, System.nanoTime() - start);
+                return bookMove;
+            }
+        }
+
+        // Cache keys are canonical, so moves are stored for whichever of the board and its mirror image is canonical
+        long cacheKey = 0;
+        boolean mirrored = gameBoard.getMirrorHash() < gameBoard.getHash();
+        if (this.cache != null && standard) {
+            cacheKey = this.cacheKey(gameBoard);
+            if (!pondered && this.cache.probe(cacheKey, this.cacheEntry)) {
+                int cachedDepth = PositionCache.getDepth(this.cacheEntry);
+                int column = PositionCache.getMove(this.cacheEntry);
+                if (mirrored) {
+                    column = Board.BOARD_SIZE - 1 - column;
+                }
+                if ((cachedDepth == PositionCache.EXACT_DEPTH
+                        || (this.timeBudgetMillis == 0 && cachedDepth >= this.searchDepth))
+                        && gameBoard.isColumnOpen(column)) {
+                    this.report(column, PositionCache.getScore(this.cacheEntry), MoveMetrics.Source.CACHE,
+                            cachedDepth, 0, 0, 0, 0, 0, System.nanoTime() - start);
+                    return column;
+                }
+            }
+        }
+
+        double bestValue;
+        int bestMove;
+        int depth;
+        long nodes;
+        long leaves = 0;
+        long cutoffs = 0;
+        long tableProbes = 0;
+        long tableHits = 0;
+        MoveMetrics.Source source = MoveMetrics.Source.SEARCH;
+        if (this.table != null) {
+            this.table.newSearch();
+        }
+
+        int emptyCells = standard ? EndgameSolver.countEmptyCells(gameBoard) : Integer.MAX_VALUE;
+        if (pondered) {
+            bestValue = this.ponderValue;
+            bestMove = this.alphaBeta.bestColumn;
+            depth = this.alphaBeta.completedDepth;
+            nodes = this.alphaBeta.nodes;
+            leaves = this.alphaBeta.leaves;
+            cutoffs = this.alphaBeta.cutoffs;
+            tableProbes = this.alphaBeta.tableProbes;
+            tableHits = this.alphaBeta.tableHits;
+            source = MoveMetrics.Source.PONDER;
+        } else if (emptyCells <= this.solverThreshold) {
+            if (this.solver == null) {
+                this.solver = new EndgameSolver(20);
+                this.solver.setTablebase(this.tablebase);
+            }
+            int score = this.solver.solve(gameBoard, this.playerNumber);
+            bestValue = Integer.signum(score);
+            bestMove = this.solver.bestColumn;
+            depth = EndgameSolver.pliesToEnd(score, emptyCells);
+            nodes = this.solver.nodes;
+            source = MoveMetrics.Source.SOLVER;
+        } else if (standard && this.searchMode == SearchMode.ALPHA_BETA && this.threads > 1) {
+            if (this.parallel == null) {
+                if (this.table == null) {
+                    this.table = new TranspositionTable(1 << 20, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+                }
+                this.parallel = new ParallelSearch(this, this.threads, this.table);
+                this.parallel.setIncrementalEvaluation(this.evaluation == Evaluation.INCREMENTAL);
+                this.parallel.setSymmetryReduction(this.symmetryReduction);
+            }
+            long budget = this.timeBudgetMillis > 0 ? this.timeBudgetMillis * 1000000L : Long.MAX_VALUE;
+            int maxDepth = this.timeBudgetMillis > 0 ? Integer.MAX_VALUE : this.searchDepth;
+            this.stoppable = true;
+            bestValue = this.parallel.search(gameBoard, maxDepth, this.playerNumber, budget);
+            this.stoppable = false;
+            bestMove = this.parallel.bestColumn;
+            depth = this.parallel.completedDepth;
+            nodes = this.parallel.nodes;
+            leaves = this.parallel.leaves;
+            cutoffs = this.parallel.cutoffs;
+            tableProbes = this.parallel.tableProbes;
+            tableHits = this.parallel.tableHits;
+        } else if (standard && this.searchMode == SearchMode.ALPHA_BETA) {
+            if (this.alphaBeta == null) {
+                this.alphaBeta = new AlphaBetaSearch(this);
+                this.alphaBeta.setTranspositionTable(this.table);
+                this.alphaBeta.setIncrementalEvaluation(this.evaluation == Evaluation.INCREMENTAL);
+                this.alphaBeta.setSymmetryReduction(this.symmetryReduction);
+            }
+            // Cleared before the search becomes stoppable, so that no stop() in between is forgotten
+            this.alphaBeta.clearStop();
+            this.stoppable = true;
+            if (this.timeBudgetMillis > 0) {
+                bestValue = this.alphaBeta.searchIterative(gameBoard, Integer.MAX_VALUE, this.playerNumber,
+                        this.timeBudgetMillis * 1000000L, 0);
+            } else {
+                bestValue = this.alphaBeta.searchToDepth(gameBoard, this.searchDepth, this.playerNumber);
+            }
+            this.stoppable = false;
+            bestMove = this.alphaBeta.bestColumn;
+            depth = this.alphaBeta.completedDepth;
+            nodes = this.alphaBeta.nodes;
+            leaves = this.alphaBeta.leaves;
+            cutoffs = this.alphaBeta.cutoffs;
+            tableProbes = this.alphaBeta.tableProbes;
+            tableHits = this.alphaBeta.tableHits;
+        } else {
+            this.nodesSearched = 0;
+            this.leavesSearched = 0;
+            bestValue = searchValue(gameBoard, this.searchDepth, this.playerNumber);
+            bestMove = this.bestColumn;
+            depth = this.searchDepth;
+            nodes = this.nodesSearched;
+            leaves = this.leavesSearched;
+        }
+
+        if (bestMove < 0 || !gameBoard.isColumnOpen(bestMove)) {
+            // Stopped before the first depth was searched; play the most central open column
+            bestMove = firstOpenColumn(gameBoard);
+        } else if (this.cache != null && standard) {
+            int cachedDepth = source == MoveMetrics.Source.SOLVER ? PositionCache.EXACT_DEPTH : depth;
+            this.cache.store(cacheKey, cachedDepth, bestValue, mirrored ? Board.BOARD_SIZE - 1 - bestMove : bestMove);
+        }
+
+        this.report(bestMove, bestValue, source, depth, nodes, leaves, cutoffs, tableProbes, tableHits,
+                System.nanoTime() - start);
+
+        if (this.pondering && this.threads == 1 && bestMove >= 0
+                && (source == MoveMetrics.Source.SEARCH || source == MoveMetrics.Source.PONDER)
+                && standard && this.searchMode == SearchMode.ALPHA_BETA) {
+            this.startPondering(gameBoard, bestMove);
+        }
+        return bestMove;
+    }
 
-        long diff = System.nanoTime()-start;
-        double elapsed = (double)diff/1e9;
-        System.out.println("Elapsed Time: " + elapsed + " sec");
-        return bestMove.move;
+    /*
+     * Plays bestMove and the predicted reply on a copy of gameBoard and starts searching the result in the
+     * background. Does nothing if there is no prediction, the game ends first or the endgame solver would take over.
+     */
+    private void startPondering(Board gameBoard, int bestMove) {
+        int reply = this.alphaBeta.getPvMove(1);
+        if (reply < 0) {
+            return;
+        }
+        if (this.ponderBoard == null) {
+            this.ponderBoard = new BitBoard();
+        }
+        BitBoard board = this.ponderBoard;
+        board.copyFrom(gameBoard);
+        int opponent = this.playerNumber == 1 ? 2 : 1;
+        if (!board.move(this.playerNumber, bestMove) || board.checkIfGameOver(bestMove) >= 0
+                || !board.move(opponent, reply) || board.checkIfGameOver(reply) >= 0
+                || EndgameSolver.countEmptyCells(board) <= this.solverThreshold) {
+            return;
+        }
+
+        if (this.ponderThread == null) {
+            this.ponderThread = Executors.newSingleThreadExecutor((task) -> {
+                Thread thread = new Thread(task, "ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.ponderHash = board.getHash();
+        this.ponderStart = System.nanoTime();
+        AlphaBetaSearch search = this.alphaBeta;
+        int player = this.playerNumber;
+        int depth = this.searchDepth;
+        long budget = this.timeBudgetMillis * 1000000L * PONDER_BUDGETS;
+
+        // Cleared here rather than by the ponder thread, so that a stop() before the search has started ends it
+        search.clearStop();
+        if (this.timeBudgetMillis > 0) {
+            this.ponderTask = this.ponderThread.submit(() -> {
+                this.ponderValue = search.searchIterative(board, Integer.MAX_VALUE, player, budget, 0);
+            });
+        } else {
+            this.ponderTask = this.ponderThread.submit(() -> {
+                this.ponderValue = search.searchToDepth(board, depth, player);
+            });
+        }
+    }
+
+    /*
+     * Ends the running ponder search. Returns true if it was searching gameBoard and has a result to play: with a
+     * fixed depth after waiting for it to finish, with a time budget once it has searched for the whole budget,
+     * which may already be the case when the opponent took longer than the budget.
+     */
+    private boolean finishPondering(Board gameBoard) {
+        boolean predicted = gameBoard.getHash() == this.ponderHash
+                && gameBoard.getGeometry() == BoardGeometry.STANDARD;
+        if (!predicted) {
+            this.alphaBeta.stop();
+            this.awaitPondering(Long.MAX_VALUE);
+        } else if (this.timeBudgetMillis > 0) {
+            long deadline = this.ponderStart + this.timeBudgetMillis * 1000000L;
+            if (!this.awaitPondering(deadline)) {
+                this.alphaBeta.stop();
+                this.awaitPondering(Long.MAX_VALUE);
+            }
+        } else {
+            this.awaitPondering(Long.MAX_VALUE);
+        }
+        this.ponderTask = null;
+        return predicted && this.alphaBeta.completedDepth >= 0 && this.alphaBeta.bestColumn >= 0;
+    }
+
+    /*
+     * Waits for the ponder search to end, or until deadline (a System.nanoTime() value). Returns false if the
+     * deadline passed first.
+     */
+    private boolean awaitPondering(long deadline) {
+        try {
+            if (deadline == Long.MAX_VALUE) {
+                this.ponderTask.get();
+            } else {
+                this.ponderTask.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.alphaBeta.stop();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pondering failed", e.getCause());
+        }
+    }
+
+    /*
+     * Returns the open column closest to the center, or -1 if the board is full.
+     */
+    private static int firstOpenColumn(Board gameBoard) {
+        int columns = gameBoard.getGeometry().getColumns();
+        int center = (columns - 1) / 2;
+        for (int d=0; d<columns; d++) {
+            // Center, then alternately left and right of it
+            if (center - d >= 0 && gameBoard.isColumnOpen(center - d)) {
+                return center - d;
+            }
+            if (d > 0 && center + d < columns && gameBoard.isColumnOpen(center + d)) {
+                return center + d;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Returns the PositionCache key of the position with this player to move: the canonical hash, told apart by the
+     * player to move and by the evaluation that scored it.
+     */
+    private long cacheKey(Board gameBoard) {
+        long key = gameBoard.getCanonicalHash();
+        if (this.playerNumber == 2) {
+            key ^= Zobrist.PLAYER_2_TO_MOVE;
+        }
+        if (this.searchMode == SearchMode.ALPHA_BETA && this.evaluation == Evaluation.INCREMENTAL) {
+            key ^= INCREMENTAL_CACHE_KEY;
+        }
+        return key;
+    }
+
+    /*
+     * Adds a chosen move to the metrics and passes it to the sink. Nothing is allocated unless a sink is set.
+     */
+    private void report(int column, double value, MoveMetrics.Source source, int depth, long nodes, long leaves,
+                        long cutoffs, long tableProbes, long tableHits, long nanos) {
+        if (this.metrics != null) {
+            this.metrics.record(source, depth, nodes, leaves, cutoffs, tableProbes, tableHits, nanos);
+        }
+        if (this.sink != null) {
+            int threads = source == MoveMetrics.Source.SEARCH ? this.threads : 1;
+            this.sink.moveChosen(new MoveMetrics(this.playerNumber, column, value, source, depth, threads, nodes,
+                    leaves, cutoffs, tableProbes, tableHits, nanos));
+        }
+    }
+
+    /*
+     * Same search as search(), but keeps the best move in local primitives instead of building a list of Move
+     * objects, so no objects are allocated per position. Ties are broken exactly like getBestMove().
+     * @return the value of the best move; the best move itself is stored in bestColumn
+     */
+    public double searchValue(Board gameBoard, int maxDepth, int playerNumber) {
+
+        double max = -1.0;
+        double bestValue = 0.0;
+        int bestMove = -1;
+
+        // Try each possible move
+        int columns = gameBoard.getGeometry().getColumns();
+        for (int i=0; i<columns; i++) {
+
+            // Skip this move if the column isn't open
+            if (!gameBoard.isColumnOpen(i)) {
+                continue;
+            }
+
+            // Place a tile in column i
+            gameBoard.move(playerNumber, i);
+            this.nodesSearched++;
+
+            double value;
+            int gameStatus = gameBoard.checkIfGameOver(i);
+            if (gameStatus >= 0) {
+                if (gameStatus == 0) {
+                    value = 0.0;
+                } else if (gameStatus == playerNumber) {
+                    value = 1.0;
+                } else {
+                    value = -1.0;
+                }
+            } else if (maxDepth == 0) {
+                this.leavesSearched++;
+                value = heuristic(gameBoard, playerNumber);
+            } else {
+                value = -searchValue(gameBoard, maxDepth-1, (playerNumber == 1 ? 2 : 1));
+            }
+
+            // Remove the tile from column i
+            gameBoard.undoMove(i);
+
+            // Keep the first move as a fallback, then the first move that beats max
+            if (bestMove < 0) {
+                bestMove = i;
+                bestValue = value;
+            }
+            if (value > max) {
+                max = value;
+                bestMove = i;
+                bestValue = value;
+            }
+        }
+
+        this.bestColumn = bestMove;
+        return bestValue;
     }
 
     public Move search(Board gameBoard, int maxDepth, int playerNumber) {
@@ -46,7 +663,8 @@ public class MyPlayer extends Player {
         ArrayList<Move> moves = new ArrayList<Move>();
 
         // Try each possible move
-        for (int i=0; i<Board.BOARD_SIZE; i++) {
+        int columns = gameBoard.getGeometry().getColumns();
+        for (int i=0; i<columns; i++) {
 
             // Skip this move if the column isn't open
             if (!gameBoard.isColumnOpen(i)) {
@@ -99,15 +717,15 @@ public class MyPlayer extends Player {
     }
 
     // integer in each position is the number of times that position can be part of a combination of 4.
-    private static int[][] weightedTable = {
-            {3, 4, 5, 7, 5, 4, 3},
-            {4, 6, 8, 10, 8, 6, 4},
-            {5, 8, 11, 13, 11, 8, 5},
-            {7, 10, 13, 16, 13, 10, 7},
-            {5, 8, 11, 13, 11, 8, 5},
-            {4, 6, 8, 10, 8, 6, 4},
-            {3, 4, 5, 7, 5, 4, 3}
-    };
+    private static int[][] weightedTable = BoardGeometry.STANDARD.getWeightedTable();
+
+    /*
+     * Returns the weighted table for the board's geometry; weightedTable for the standard board.
+     */
+    private static int[][] weightedTable(Board gameBoard) {
+        BoardGeometry geometry = gameBoard.getGeometry();
+        return geometry == BoardGeometry.STANDARD ? weightedTable : geometry.weightedTable();
+    }
 
     /*
      * Searches every column to evaluate board and looks for 3 in a row vertically.
@@ -124,15 +742,19 @@ public class MyPlayer extends Player {
         int connectSize2 = 0;
         double connectTotal = 0;
         double weightedSum = 0;
-        for (int i = 0; i < gameBoard.BOARD_SIZE; i++) {
-            for (int j = 0; j < gameBoard.BOARD_SIZE; j++) {
-                if (gameBoard.getBoard()[i][j] == 0) {
+        int[][] cells = gameBoard.getBoard();
+        int[][] weights = weightedTable(gameBoard);
+        int rows = cells.length;
+        int columns = cells[0].length;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (cells[i][j] == 0) {
                     break;
                 }
-                else if (gameBoard.getBoard()[i][j] == playerNumber) {
-                    weightedSum += weightedTable[i][j];
-                    for(int z = j; z < gameBoard.BOARD_SIZE; z++){
-                        if(gameBoard.getBoard()[i][z] == playerNumber){
+                else if (cells[i][j] == playerNumber) {
+                    weightedSum += weights[i][j];
+                    for(int z = j; z < columns; z++){
+                        if(cells[i][z] == playerNumber){
                             connectSize1++;
                         }
                         else break;
@@ -141,10 +763,10 @@ public class MyPlayer extends Player {
                         connectSize1 = 0;
                     }
                 }
-                else if (gameBoard.getBoard()[i][j] != playerNumber) {
-                    weightedSum -= weightedTable[i][j];
-                    for(int z = j; z < gameBoard.BOARD_SIZE; z++){
-                        if(gameBoard.getBoard()[i][z] == playerNumber){
+                else if (cells[i][j] != playerNumber) {
+                    weightedSum -= weights[i][j];
+                    for(int z = j; z < columns; z++){
+                        if(cells[i][z] == playerNumber){
                             connectSize2++;
                         }
                         else break;
@@ -193,18 +815,22 @@ public class MyPlayer extends Player {
         int connectSize2 = 0;
         double connectTotal = 0;
         double weightedSum = 0;
-        for (int j = 0; j < gameBoard.BOARD_SIZE; j++) {
-            for (int i = 0; i < gameBoard.BOARD_SIZE; i++) {
-                if (gameBoard.getBoard()[i][j] == 0) {
+        int[][] cells = gameBoard.getBoard();
+        int[][] weights = weightedTable(gameBoard);
+        int rows = cells.length;
+        int columns = cells[0].length;
+        for (int j = 0; j < columns; j++) {
+            for (int i = 0; i < rows; i++) {
+                if (cells[i][j] == 0) {
                     break;
                 }
-                else if (gameBoard.getBoard()[i][j] == playerNumber) {
-                    weightedSum += weightedTable[i][j];
+                else if (cells[i][j] == playerNumber) {
+                    weightedSum += weights[i][j];
                     int oneSpace = 0;
-                        for (int z = j; z < gameBoard.BOARD_SIZE; z++) {
-                            if (gameBoard.getBoard()[i][z] == playerNumber) {
+                        for (int z = j; z < columns; z++) {
+                            if (cells[i][z] == playerNumber) {
                                 connectSize1++;
-                            } else if (gameBoard.getBoard()[i][z] == 0) {
+                            } else if (cells[i][z] == 0) {
                                 oneSpace++; // allow one open space between a group of 3
                                 if(oneSpace == 2){
                                     break;
@@ -215,10 +841,10 @@ public class MyPlayer extends Player {
                         connectSize1 = 0;
                     }
                 }
-                else if (gameBoard.getBoard()[i][j] != playerNumber) {
-                    weightedSum -= weightedTable[i][j];
-                    for(int z = j; z < gameBoard.BOARD_SIZE; z++){
-                        if(gameBoard.getBoard()[i][z] == playerNumber){
+                else if (cells[i][j] != playerNumber) {
+                    weightedSum -= weights[i][j];
+                    for(int z = j; z < columns; z++){
+                        if(cells[i][z] == playerNumber){
                             connectSize2++;
                         }
                         else break;
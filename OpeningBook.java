@@ -0,0 +1,170 @@
+/**
+ * Precomputed best moves for the first few plies of the game, where the search tree is widest and the positions are
+ * always the same. The book is generated offline by searching every position reachable within a number of plies and
+ * is stored as a sorted binary file:
+ *
+ *   int magic, int version, int entry count, then per entry: long key, byte column
+ *
+ * Keys are canonical: a position and its mirror image share one entry, and the stored column is for whichever of
+ * the two has the smaller hash. At runtime the file is memory-mapped and looked up with a binary search, so opening
+ * a book does not read it into memory and costs the same no matter how large the book is.
+ *
+ * Generate with: java OpeningBook [file] [plies] [depth]
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OpeningBook {
+
+    private static final int MAGIC = 0x43464F42; // "CFOB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_BYTES = 9;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Memory-maps the book stored in file.
+     *
+     * @throws IOException if the file cannot be read or is not an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " is not an opening book");
+            }
+            int size = buffer.getInt(8);
+            if (buffer.limit() != HEADER_BYTES + (long) size * ENTRY_BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * Returns the number of positions in the book.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the book move for playerNumber on gameBoard, or -1 if the position is not in the book.
+     */
+    public int lookup(Board gameBoard, int playerNumber) {
+        boolean mirrored = gameBoard.getMirrorHash() < gameBoard.getHash();
+        long key = searchKey(gameBoard.getCanonicalHash(), playerNumber);
+
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_BYTES + middle * ENTRY_BYTES;
+            long entryKey = this.entries.getLong(offset);
+            if (entryKey < key) {
+                low = middle + 1;
+            } else if (entryKey > key) {
+                high = middle - 1;
+            } else {
+                int column = this.entries.get(offset + 8);
+                if (mirrored) {
+                    column = Board.BOARD_SIZE - 1 - column;
+                }
+                return gameBoard.isColumnOpen(column) ? column : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static long searchKey(long hash, int playerNumber) {
+        return playerNumber == 1 ? hash : hash ^ Zobrist.PLAYER_2_TO_MOVE;
+    }
+
+    /**
+     * Searches every position that can be reached within plies moves from the empty board to the given depth and
+     * writes the best moves to file.
+     */
+    public static int generate(Path file, int plies, int depth) throws IOException {
+        MyPlayer evaluator = new MyPlayer();
+        AlphaBetaSearch search = new AlphaBetaSearch(evaluator);
+        search.setTranspositionTable(new TranspositionTable(1 << 20,
+                TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+
+        Map<Long, Integer> moves = new HashMap<Long, Integer>();
+        collect(new BitBoard(), 1, plies, depth, search, moves);
+
+        long[] keys = new long[moves.size()];
+        int k = 0;
+        for (long key : moves.keySet()) {
+            keys[k++] = key;
+        }
+        Arrays.sort(keys);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(keys.length);
+            for (long key : keys) {
+                out.writeLong(key);
+                out.writeByte(moves.get(key));
+            }
+        }
+        return keys.length;
+    }
+
+    /*
+     * Adds the book move of gameBoard and of every position reachable from it within plies moves to moves.
+     */
+    private static void collect(Board gameBoard, int playerNumber, int plies, int depth, AlphaBetaSearch search,
+                                Map<Long, Integer> moves) {
+        long key = searchKey(gameBoard.getCanonicalHash(), playerNumber);
+        if (moves.containsKey(key)) {
+            return;
+        }
+
+        search.search(gameBoard, depth, playerNumber);
+        int column = search.bestColumn;
+        moves.put(key, gameBoard.getMirrorHash() < gameBoard.getHash() ? Board.BOARD_SIZE - 1 - column : column);
+
+        if (plies == 0) {
+            return;
+        }
+        for (int i=0; i<Board.BOARD_SIZE; i++) {
+            if (gameBoard.move(playerNumber, i)) {
+                if (gameBoard.checkIfGameOver(i) < 0) {
+                    collect(gameBoard, (playerNumber == 1 ? 2 : 1), plies - 1, depth, search, moves);
+                }
+                gameBoard.undoMove(i);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "opening.book");
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 9;
+
+        long start = System.nanoTime();
+        int entries = generate(file, plies, depth);
+        System.out.println("Wrote " + entries + " positions to " + file + " in "
+                + (System.nanoTime() - start) / 1e9 + " sec");
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Measures how ParallelSearch scales with the number of threads. For every thread count it searches a fixed set of
+ * positions to a fixed depth with a fresh transposition table and prints the time to reach that depth, the nodes
+ * searched and the nodes per second.
+ *
+ * Run with: java ParallelScalingReport [depth] [thread counts...]
+ * e.g.      java ParallelScalingReport 12 1 2 4 8 16
+ */
+public class ParallelScalingReport {
+
+    // Positions given as the columns played so far, starting with player 1
+    private static final String[] POSITIONS = {
+            "33",
+            "3322",
+            "332456",
+            "33334422",
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        if (args.length > 1) {
+            threadCounts = new int[args.length - 1];
+            for (int i=1; i<args.length; i++) {
+                threadCounts[i-1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        MyPlayer evaluator = new MyPlayer();
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.println("Depth: " + depth);
+        System.out.println("threads  time-to-depth (ms)  nodes  nodes/sec  speedup");
+
+        // Warm up the JIT so the first thread count is not penalized
+        runAll(evaluator, 1, Math.min(depth, 8));
+
+        double baseline = 0;
+        for (int threads : threadCounts) {
+            long[] result = runAll(evaluator, threads, depth);
+            double millis = result[0] / 1e6;
+            if (baseline == 0) {
+                baseline = millis;
+            }
+            System.out.printf("%7d  %19.1f  %5d  %9.0f  %7.2f%n", threads, millis, result[1],
+                    result[1] / (result[0] / 1e9), baseline / millis);
+        }
+    }
+
+    /*
+     * Searches every position and returns {total nanoseconds, total nodes}.
+     */
+    private static long[] runAll(MyPlayer evaluator, int threads, int depth) {
+        long nanos = 0;
+        long nodes = 0;
+        for (String position : POSITIONS) {
+            Board board = new BitBoard();
+            int player = 1;
+            for (char c : position.toCharArray()) {
+                board.move(player, c - '0');
+                player = (player == 1 ? 2 : 1);
+            }
+
+            TranspositionTable table =
+                    new TranspositionTable(1 << 22, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+            ParallelSearch search = new ParallelSearch(evaluator, threads, table);
+            long start = System.nanoTime();
+            search.search(board, depth, player, Long.MAX_VALUE);
+            nanos += System.nanoTime() - start;
+            nodes += search.nodes;
+            search.shutdown();
+        }
+        return new long[] {nanos, nodes};
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Runs the alpha-beta search on several threads at once using Lazy SMP: every thread searches the whole tree with its
+ * own AlphaBetaSearch and its own copy of the board, and all of them share one lock-free TranspositionTable. A thread
+ * that finishes a position stores the result in the table, so the other threads can skip it. Half of the helper
+ * threads start one depth deeper than the main thread so that they do not all search the same position at the same
+ * time.
+ *
+ * The main thread is the caller of search(); the helpers run in a ForkJoinPool. When the main thread finishes, the
+ * helpers are stopped and the result of whichever thread completed the deepest search is returned.
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class ParallelSearch {
+
+    private final int threads;
+    private final TranspositionTable table;
+    private final AlphaBetaSearch[] workers;
+    private final BitBoard[] boards;
+    private final ForkJoinTask<?>[] tasks;
+    private final ForkJoinPool pool;
+
+    // Results of the last search
+    int bestColumn;
+    int completedDepth;
+    long nodes;
+    long leaves;
+    long cutoffs;
+    long tableProbes;
+    long tableHits;
+
+    /**
+     * Creates a search that uses the given number of threads (including the calling thread) and shares table
+     * between them.
+     */
+    public ParallelSearch(MyPlayer evaluator, int threads, TranspositionTable table) {
+        this.threads = Math.max(1, threads);
+        this.table = table;
+        this.workers = new AlphaBetaSearch[this.threads];
+        this.boards = new BitBoard[this.threads];
+        this.tasks = new ForkJoinTask<?>[this.threads];
+        for (int t=0; t<this.threads; t++) {
+            this.workers[t] = new AlphaBetaSearch(evaluator);
+            this.workers[t].setTranspositionTable(table);
+            this.boards[t] = new BitBoard();
+        }
+        this.pool = this.threads > 1 ? new ForkJoinPool(this.threads - 1) : null;
+    }
+
+    /**
+     * Makes every thread score leaves with its own IncrementalEvaluator instead of MyPlayer.heuristic().
+     */
+    public void setIncrementalEvaluation(boolean incremental) {
+        for (AlphaBetaSearch worker : this.workers) {
+            worker.setIncrementalEvaluation(incremental);
+        }
+    }
+
+    /**
+     * Makes every thread treat mirrored positions as the same position, see AlphaBetaSearch.setSymmetryReduction().
+     */
+    public void setSymmetryReduction(boolean enabled) {
+        for (AlphaBetaSearch worker : this.workers) {
+            worker.setSymmetryReduction(enabled);
+        }
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /*
+     * Searches gameBoard on all threads, deepening one level at a time up to maxDepth, and stops when budgetNanos
+     * have passed (use Long.MAX_VALUE to search to maxDepth). Returns the value of the best move; the move is stored
+     * in bestColumn.
+     */
+    public double search(Board gameBoard, int maxDepth, int playerNumber, long budgetNanos) {
+        // Cleared here rather than by the helpers, so that stopping one that has not started yet is not lost
+        for (int t=0; t<this.threads; t++) {
+            this.boards[t].copyFrom(gameBoard);
+            this.workers[t].clearStop();
+        }
+
+        for (int t=1; t<this.threads; t++) {
+            final AlphaBetaSearch worker = this.workers[t];
+            final BitBoard board = this.boards[t];
+            final int firstDepth = t % 2;
+            this.tasks[t] = this.pool.submit(() -> {
+                worker.searchIterative(board, maxDepth, playerNumber, budgetNanos, firstDepth);
+            });
+        }
+
+        AlphaBetaSearch main = this.workers[0];
+        double bestValue = main.searchIterative(this.boards[0], maxDepth, playerNumber, budgetNanos, 0);
+        this.bestColumn = main.bestColumn;
+        this.completedDepth = main.completedDepth;
+
+        for (int t=1; t<this.threads; t++) {
+            this.workers[t].stop();
+        }
+        for (int t=1; t<this.threads; t++) {
+            this.tasks[t].join();
+        }
+
+        this.nodes = 0;
+        this.leaves = 0;
+        this.cutoffs = 0;
+        this.tableProbes = 0;
+        this.tableHits = 0;
+        for (int t=0; t<this.threads; t++) {
+            AlphaBetaSearch worker = this.workers[t];
+            this.nodes += worker.nodes;
+            this.leaves += worker.leaves;
+            this.cutoffs += worker.cutoffs;
+            this.tableProbes += worker.tableProbes;
+            this.tableHits += worker.tableHits;
+        }
+
+        // Helpers searched the same tree with the same table; trust the one that went deepest
+        for (int t=1; t<this.threads; t++) {
+            AlphaBetaSearch worker = this.workers[t];
+            if (worker.completedDepth > this.completedDepth && worker.bestColumn >= 0) {
+                this.bestColumn = worker.bestColumn;
+                this.completedDepth = worker.completedDepth;
+                bestValue = worker.lastValue;
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Asks a running search to stop at once on every thread, including helpers that have not started yet; search()
+     * then returns the result of the deepest completed depth. Can be called from any thread.
+     */
+    public void stop() {
+        for (AlphaBetaSearch worker : this.workers) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Stops the helper threads. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * Counts every position reachable from a position in up to a given number of moves, and the games that end among
+ * them, using only Board's move(), undoMove() and checkIfGameOver(). Two Board implementations that are both correct
+ * reach exactly the same positions, so comparing their counts checks a new implementation against Board, and the
+ * time taken measures how fast it generates moves and finds wins.
+ *
+ * Besides the number of positions at every ply, each run adds up the hashes of the positions it reaches; a board that
+ * places a tile in the wrong cell gives the same counts but a different checksum. Positions where the game is over
+ * are counted but not expanded.
+ *
+ * The moves from the start position are split between threads, one task per move, each on its own board. With a
+ * transposition table, a position reached by a different order of the same moves is only counted and expanded the
+ * first time, so the counts become the number of distinct positions.
+ *
+ * Run with: java Perft [depth] [moves] [threads] [table entries] [implementation]
+ * to compare Board, BitBoard and VariantBoard from the position reached by moves (columns played so far, starting with
+ * player 1, "-" for the empty board). A table size of 0 (the default) disables the transposition table. Exits with
+ * status 1 if the implementations disagree.
+ *
+ * Every implementation is counted and timed in a JVM of its own, started with the same java and class path. In one
+ * JVM only the implementation timed first would run while visit()'s calls to the board still go to a single class;
+ * once several classes have passed through them the JIT compiles them as slower virtual calls, and the later
+ * implementations look several times slower than they are. Naming an implementation runs only that one, in this JVM.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+public class Perft {
+
+    private final Supplier<Board> boards;
+    private final int threads;
+
+    // Hashes of the positions reached so far, or null to count every path
+    private AtomicLongArray seen;
+
+    /**
+     * Creates a perft that runs on boards created by boards, which must start empty.
+     */
+    public Perft(Supplier<Board> boards, int threads) {
+        this.boards = boards;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Counts every position only once, in a table with room for the given number of positions (rounded up to a
+     * power of two), or counts every path if entries is 0 (the default). Every position takes 8 bytes.
+     */
+    public void setTranspositionTable(int entries) {
+        this.seen = entries > 0 ? new AtomicLongArray(Integer.highestOneBit(Math.max(1, entries - 1)) << 1) : null;
+    }
+
+    /**
+     * Counts the positions reachable in up to depth moves from the position reached by moves, given as the columns
+     * played so far starting with player 1.
+     *
+     * @throws IllegalArgumentException if a move is not a column, is played in a full column or follows the end of
+     *                                  the game
+     * @throws IllegalStateException    if the transposition table fills up
+     */
+    public Counts run(String moves, int depth) {
+        if (this.seen != null) {
+            for (int i=0; i<this.seen.length(); i++) {
+                this.seen.set(i, 0);
+            }
+        }
+        long start = System.nanoTime();
+
+        Board root = this.boards.get();
+        int player = this.play(root, moves);
+        int status = moves.isEmpty() ? -1 : root.checkIfGameOver(moves.charAt(moves.length() - 1) - '0');
+        Counts counts = new Counts(depth);
+        counts.add(0, root.getHash());
+        if (status >= 0) {
+            counts.addResult(status);
+            counts.elapsedNanos = System.nanoTime() - start;
+            return counts;
+        }
+        if (depth == 0) {
+            counts.elapsedNanos = System.nanoTime() - start;
+            return counts;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        try {
+            List<Future<Counts>> parts = new ArrayList<Future<Counts>>();
+            int columns = root.getGeometry().getColumns();
+            for (int j=0; j<columns; j++) {
+                if (root.isColumnOpen(j)) {
+                    final int column = j;
+                    parts.add(pool.submit(() -> this.split(moves, player, column, depth)));
+                }
+            }
+            for (Future<Counts> part : parts) {
+                counts.merge(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perft was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("A perft task failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        counts.elapsedNanos = System.nanoTime() - start;
+        return counts;
+    }
+
+    /*
+     * Counts the subtree of the first move column on a board of this task.
+     */
+    private Counts split(String moves, int player, int column, int depth) {
+        Board board = this.boards.get();
+        this.play(board, moves);
+        board.move(player, column);
+        Counts counts = new Counts(depth);
+        if (this.seen == null || this.add(board.getHash())) {
+            this.visit(board, player == 1 ? 2 : 1, column, 1, counts);
+        }
+        return counts;
+    }
+
+    /*
+     * Counts the position on board, reached by lastColumn, and the positions below it up to counts' depth.
+     */
+    private void visit(Board board, int player, int lastColumn, int ply, Counts counts) {
+        counts.add(ply, board.getHash());
+        int status = board.checkIfGameOver(lastColumn);
+        if (status >= 0) {
+            counts.addResult(status);
+            return;
+        }
+        if (ply == counts.positions.length - 1) {
+            return;
+        }
+
+        int next = (player == 1 ? 2 : 1);
+        int columns = board.getGeometry().getColumns();
+        for (int j=0; j<columns; j++) {
+            if (!board.move(player, j)) {
+                continue;
+            }
+            if (this.seen == null || this.add(board.getHash())) {
+                this.visit(board, next, j, ply + 1, counts);
+            }
+            board.undoMove(j);
+        }
+    }
+
+    /*
+     * Plays moves on board and returns the player to move next.
+     */
+    private int play(Board board, String moves) {
+        int player = 1;
+        for (int k=0; k<moves.length(); k++) {
+            int column = moves.charAt(k) - '0';
+            if (k > 0 && board.checkIfGameOver(moves.charAt(k - 1) - '0') >= 0) {
+                throw new IllegalArgumentException("Moves continue after the end of the game: " + moves);
+            }
+            if (!board.move(player, column)) {
+                throw new IllegalArgumentException("Invalid move " + moves.charAt(k) + " in " + moves);
+            }
+            player = (player == 1 ? 2 : 1);
+        }
+        return player;
+    }
+
+    /*
+     * Adds hash to the table and returns true if it was not there yet.
+     */
+    private boolean add(long hash) {
+        // 0 marks an empty slot; a position hashing to 0 shares its slot with one hashing to 1
+        long key = hash == 0 ? 1 : hash;
+        int mask = this.seen.length() - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        for (int probe=0; probe<=mask; probe++) {
+            long current = this.seen.get(slot);
+            if (current == key) {
+                return false;
+            }
+            if (current == 0) {
+                if (this.seen.compareAndSet(slot, 0, key)) {
+                    return true;
+                }
+                if (this.seen.get(slot) == key) {
+                    return false;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Transposition table of " + this.seen.length() + " positions is full");
+    }
+
+    /**
+     * Results of a run: the positions at every ply from the start position (ply 0) to the depth, the games won by
+     * each player or tied among them, and the sum of the hashes of all of them.
+     */
+    public static class Counts {
+
+        final long[] positions;
+        long wins1;
+        long wins2;
+        long ties;
+        long checksum;
+        long elapsedNanos;
+
+        Counts(int depth) {
+            this.positions = new long[depth + 1];
+        }
+
+        void add(int ply, long hash) {
+            this.positions[ply]++;
+            this.checksum += hash;
+        }
+
+        void addResult(int status) {
+            if (status == 0) {
+                this.ties++;
+            } else if (status == 1) {
+                this.wins1++;
+            } else {
+                this.wins2++;
+            }
+        }
+
+        /*
+         * Adds the counts of a subtree counted by another task. Elapsed time is not added.
+         */
+        void merge(Counts other) {
+            for (int ply=0; ply<this.positions.length; ply++) {
+                this.positions[ply] += other.positions[ply];
+            }
+            this.wins1 += other.wins1;
+            this.wins2 += other.wins2;
+            this.ties += other.ties;
+            this.checksum += other.checksum;
+        }
+
+        public long getPositions(int ply) {
+            return this.positions[ply];
+        }
+
+        /**
+         * Returns the number of positions at every ply.
+         */
+        public long getNodes() {
+            long nodes = 0;
+            for (long count : this.positions) {
+                nodes += count;
+            }
+            return nodes;
+        }
+
+        public double getNodesPerSecond() {
+            return this.elapsedNanos == 0 ? 0.0 : this.getNodes() / (this.elapsedNanos / 1e9);
+        }
+
+        /**
+         * Returns true if other counted the same positions and results.
+         */
+        public boolean matches(Counts other) {
+            return Arrays.equals(this.positions, other.positions) && this.wins1 == other.wins1
+                    && this.wins2 == other.wins2 && this.ties == other.ties && this.checksum == other.checksum;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (int ply=0; ply<this.positions.length; ply++) {
+                text.append("ply ").append(ply).append(": ").append(this.positions[ply]).append('\n');
+            }
+            text.append("Player 1 wins: ").append(this.wins1).append(", player 2 wins: ").append(this.wins2)
+                    .append(", ties: ").append(this.ties).append('\n');
+            text.append("Checksum: ").append(Long.toHexString(this.checksum));
+            return text.toString();
+        }
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        String moves = args.length > 1 && !args[1].equals("-") ? args[1] : "";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int entries = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        String[] names = {"Board", "BitBoard", "VariantBoard"};
+        List<Supplier<Board>> implementations = new ArrayList<Supplier<Board>>();
+        implementations.add(() -> new Board());
+        implementations.add(() -> new BitBoard());
+        implementations.add(() -> new VariantBoard(BoardGeometry.STANDARD));
+
+        if (args.length > 4) {
+            int i = Arrays.asList(names).indexOf(args[4]);
+            if (i < 0) {
+                throw new IllegalArgumentException("Unknown implementation " + args[4]);
+            }
+            Perft perft = new Perft(implementations.get(i), threads);
+            perft.setTranspositionTable(entries);
+            // Warm up the JIT on the same implementation before timing it
+            perft.run(moves, Math.min(depth, 5));
+            Counts counts = perft.run(moves, depth);
+            System.out.println(counts);
+            System.out.println(names[i] + ": " + counts.getNodes() + " positions in " + counts.elapsedNanos / 1e9
+                    + " sec, " + Math.round(counts.getNodesPerSecond()) + " positions/sec");
+            return;
+        }
+
+        System.out.println("Depth: " + depth + ", moves: " + (moves.isEmpty() ? "-" : moves) + ", threads: " + threads
+                + (entries > 0 ? ", transpositions counted once" : ""));
+        System.out.println("Each implementation is timed in a JVM of its own, after a warm-up run at depth "
+                + Math.min(depth, 5));
+        String reference = null;
+        boolean mismatch = false;
+        for (String name : names) {
+            List<String> output = runInOwnJvm(moves.isEmpty() ? "-" : moves, depth, threads, entries, name);
+            String counts = String.join("\n", output.subList(0, output.size() - 1));
+            if (reference == null) {
+                reference = counts;
+                System.out.println(counts);
+            } else if (!counts.equals(reference)) {
+                mismatch = true;
+                System.out.println("Mismatch: " + name + " counted");
+                System.out.println(counts);
+            }
+            System.out.println(output.get(output.size() - 1));
+        }
+        if (mismatch) {
+            System.exit(1);
+        }
+        System.out.println("OK: all implementations counted the same positions");
+    }
+
+    /*
+     * Runs this program for one implementation in a new JVM and returns the lines it printed.
+     */
+    private static List<String> runInOwnJvm(String moves, int depth, int threads, int entries, String name) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "Perft",
+                String.valueOf(depth), moves, String.valueOf(threads), String.valueOf(entries), name);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        try {
+            Process process = builder.start();
+            List<String> lines = new ArrayList<String>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+            if (process.waitFor() != 0 || lines.isEmpty()) {
+                throw new IllegalStateException("Perft of " + name + " failed with status " + process.exitValue());
+            }
+            return lines;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start a JVM for " + name, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perft was interrupted", e);
+        }
+    }
+}
@@ -5,6 +5,10 @@ public abstract class Player {
 
     public int playerNumber;
 
+    /**
+     * Returns the column to play. gameBoard is a copy of the game's board that the game reuses on every turn, so it
+     * is only valid until this method returns.
+     */
     abstract public int chooseMove(Board gameBoard);
     abstract public void setPlayerNumber(int number);
 }
@@ -0,0 +1,251 @@
+/**
+ * Persistent cache of MyPlayer's search results in a memory-mapped file, so an engine process starts with the
+ * positions that earlier processes on the same host already searched. Every entry holds the score, the depth and the
+ * best move of one position; solved positions are stored with depth EXACT_DEPTH.
+ *
+ * The file has a fixed number of slots laid out like TranspositionTable's, in buckets of BUCKET_SIZE slots:
+ *
+ *   header: int magic, int version, int slot count, int generation, padded to 64 bytes
+ *   slot:   long key ^ data ^ score, long data, long score
+ *
+ * Any number of processes can map the same file and read and write it at the same time without locks. Every word is
+ * read and written with a single aligned access, and a slot whose words were written by two processes at once no
+ * longer matches its key, so the worst a race can do is lose an entry. Each open() starts a new generation; when a
+ * bucket is full, entries from earlier generations are evicted first, then the shallowest ones, so the file never
+ * grows and keeps the deepest recent results.
+ *
+ * Mapping the file does not read it: the operating system pages slots in when they are first probed, so opening a
+ * large cache costs the same as opening a small one. The only locks are file locks taken by open(): a shared one while
+ * an existing file is checked and mapped, and an exclusive one while a new file is created, so no process maps a file
+ * that another one has not finished creating.
+ */
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PositionCache {
+
+    /**
+     * Depth of an entry whose score is the exact result of the game.
+     */
+    public static final int EXACT_DEPTH = 0xFF;
+
+    private static final int MAGIC = 0x43465043; // "CFPC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 24;
+    private static final int BUCKET_SIZE = 4;
+    private static final int GENERATION_OFFSET = 12;
+
+    // Layout of an entry's data word
+    private static final long VALID = 1L << 32;
+    private static final int DEPTH_SHIFT = 0;
+    private static final int MOVE_SHIFT = 8;
+    private static final int GENERATION_SHIFT = 16;
+
+    // Single-access views of the mapped file; the file is only shared between processes on one host
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final MappedByteBuffer buffer;
+    private final int mask;
+    private final int generation;
+
+    // Counters of this process
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    private PositionCache(MappedByteBuffer buffer, int slots) {
+        this.buffer = buffer;
+        this.mask = slots - 1;
+        this.generation = ((int) INTS.getAndAdd(buffer, GENERATION_OFFSET, 1) + 1) & 0xFF;
+    }
+
+    /**
+     * Maps the cache stored in file, creating it with room for at least the given number of entries (rounded up to a
+     * power of two) if it does not exist. An existing cache keeps its size. Every entry takes 24 bytes.
+     *
+     * @throws IOException              if the file cannot be mapped or is not a position cache
+     * @throws IllegalArgumentException if a new cache of that many entries would be larger than 2 GB
+     */
+    public static synchronized PositionCache open(Path file, int entries) throws IOException {
+        int slots = Math.max(BUCKET_SIZE, Integer.highestOneBit(Math.max(1, entries - 1)) << 1);
+        if (slots <= 0 || HEADER_BYTES + (long) slots * SLOT_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot create a cache of " + entries + " entries");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // File locks are held per process, so open() is synchronized to keep two threads from overlapping them
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                if (channel.size() < HEADER_BYTES) {
+                    // Another process may be creating the same file; only one of them writes it
+                    lock.release();
+                    lock = channel.lock();
+                    if (channel.size() < HEADER_BYTES) {
+                        // Extend the file without writing the slots; unwritten pages read as zero
+                        channel.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) slots * SLOT_BYTES - 1);
+                        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+                        header.putInt(MAGIC).putInt(VERSION).putInt(slots).putInt(0);
+                        header.clear();
+                        while (header.hasRemaining()) {
+                            channel.write(header, header.position());
+                        }
+                    }
+                }
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                buffer.order(ByteOrder.nativeOrder());
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException(file + " is not a position cache");
+                }
+                int size = buffer.getInt(8);
+                if (Integer.bitCount(size) != 1 || buffer.limit() != HEADER_BYTES + (long) size * SLOT_BYTES) {
+                    throw new IOException(file + " is truncated");
+                }
+                return new PositionCache(buffer, size);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Looks up key. If it is in the cache, copies the entry's data word to entry[0] and its score bits to entry[1]
+     * and returns true. Use getDepth(), getMove() and getScore() to read the copied entry.
+     */
+    public boolean probe(long key, long[] entry) {
+        this.probes.incrementAndGet();
+        int bucket = this.bucket(key);
+        for (int k=0; k<BUCKET_SIZE; k++) {
+            int offset = this.offset((bucket + k) & this.mask);
+            long word = (long) LONGS.getOpaque(this.buffer, offset + 8);
+            long score = (long) LONGS.getOpaque(this.buffer, offset + 16);
+            if (word != 0 && ((long) LONGS.getOpaque(this.buffer, offset) ^ word ^ score) == key) {
+                entry[0] = word;
+                entry[1] = score;
+                this.hits.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int getDepth(long[] entry) {
+        return (int) (entry[0] >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int getMove(long[] entry) {
+        return (int) (entry[0] >>> MOVE_SHIFT) & 0xFF;
+    }
+
+    public static double getScore(long[] entry) {
+        return Double.longBitsToDouble(entry[1]);
+    }
+
+    /**
+     * Stores the result of a search, unless the cache already holds a deeper result for the position.
+     *
+     * @param key       Hash of the position
+     * @param depth     Depth the position was searched to, or EXACT_DEPTH if it was solved
+     * @param score     Score of the position for the player to move
+     * @param move      Best move found, between 0 and 255
+     */
+    public void store(long key, int depth, double score, int move) {
+        int bucket = this.bucket(key);
+        int victim = -1;
+        int victimRank = Integer.MAX_VALUE;
+
+        for (int k=0; k<BUCKET_SIZE; k++) {
+            int slot = (bucket + k) & this.mask;
+            int offset = this.offset(slot);
+            long word = (long) LONGS.getOpaque(this.buffer, offset + 8);
+            long oldScore = (long) LONGS.getOpaque(this.buffer, offset + 16);
+            int rank;
+            if (word == 0) {
+                rank = -1;
+            } else if (((long) LONGS.getOpaque(this.buffer, offset) ^ word ^ oldScore) == key) {
+                if (depthOf(word) > depth) {
+                    return;
+                }
+                victim = slot;
+                break;
+            } else {
+                // Entries from earlier generations rank below every entry of this one
+                rank = depthOf(word) + (generationOf(word) == this.generation ? 256 : 0);
+            }
+
+            if (rank < victimRank) {
+                victim = slot;
+                victimRank = rank;
+            }
+        }
+
+        long word = VALID
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) (move & 0xFF) << MOVE_SHIFT)
+                | ((long) this.generation << GENERATION_SHIFT);
+        long scoreBits = Double.doubleToRawLongBits(score);
+        int offset = this.offset(victim);
+        LONGS.setOpaque(this.buffer, offset, key ^ word ^ scoreBits);
+        LONGS.setOpaque(this.buffer, offset + 8, word);
+        LONGS.setOpaque(this.buffer, offset + 16, scoreBits);
+    }
+
+    /**
+     * Writes the changes to the file. Not needed for other processes to see them, only to survive a crash of the
+     * host.
+     */
+    public void force() {
+        this.buffer.force();
+    }
+
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    public long getProbes() {
+        return this.probes.get();
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the fraction of this process's probes that found their position.
+     */
+    public double getHitRate() {
+        long probes = this.probes.get();
+        return probes == 0 ? 0.0 : (double) this.hits.get() / probes;
+    }
+
+    private int bucket(long key) {
+        // Mix the high bits in so that keys that differ only there still spread over the cache
+        return (int) (key ^ (key >>> 32)) & this.mask & ~(BUCKET_SIZE - 1);
+    }
+
+    private int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static int depthOf(long word) {
+        return (int) (word >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    private static int generationOf(long word) {
+        return (int) (word >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Fixed set of positions used by the benchmarks and reports, so that every run measures the same work. Positions are
+ * written as the columns played so far, starting with player 1. None of them is already won, and in none of them can
+ * the player to move win immediately.
+ */
+public class PositionCorpus {
+
+    public static final String[] OPENING = {
+            "",
+            "33",
+            "3324",
+    };
+
+    public static final String[] MIDGAME = {
+            "55522000526434",
+            "12036041532563",
+            "13002636303306",
+    };
+
+    public static final String[] ENDGAME = {
+            "1214660421426134602434162600650055",
+            "3520105625541361425503622316610521",
+            "0212065562003421305355124621200656",
+    };
+
+    private PositionCorpus() {
+    }
+
+    /**
+     * Plays the moves on gameBoard, which should be empty, and returns the number of the player to move next.
+     *
+     * @throws IllegalArgumentException if a move is not a valid column or the column is full
+     */
+    public static int play(String moves, Board gameBoard) {
+        int player = 1;
+        for (int k=0; k<moves.length(); k++) {
+            int column = moves.charAt(k) - '0';
+            if (!gameBoard.move(player, column)) {
+                throw new IllegalArgumentException("Invalid move " + moves.charAt(k) + " in position " + moves);
+            }
+            player = (player == 1 ? 2 : 1);
+        }
+        return player;
+    }
+
+    /**
+     * Returns a new BitBoard with the moves played on it.
+     */
+    public static Board toBoard(String moves) {
+        Board gameBoard = new BitBoard();
+        play(moves, gameBoard);
+        return gameBoard;
+    }
+}
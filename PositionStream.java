@@ -0,0 +1,175 @@
+/**
+ * Reads positions one at a time from a text or binary file, so files of any size can be processed without loading
+ * them into memory. Positions are the columns played so far starting with player 1, as in PositionCorpus.
+ *
+ * Text files hold one position per line, for example "3324"; blank lines and lines starting with # are skipped.
+ * Binary files take about half the space:
+ *
+ *   int magic, int version, then per position: byte move count, then the moves two per byte (low 4 bits first)
+ *
+ * open() tells the two formats apart by the magic number. Convert a text file with: java PositionStream text binary
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class PositionStream implements Closeable {
+
+    private static final int MAGIC = 0x43465053; // "CFPS"
+    private static final int VERSION = 1;
+    private static final int MAX_MOVES = Board.BOARD_SIZE * Board.BOARD_SIZE;
+
+    // Exactly one of the two is set
+    private final BufferedReader text;
+    private final DataInputStream binary;
+
+    private final char[] moves = new char[MAX_MOVES];
+    private final byte[] packed = new byte[(MAX_MOVES + 1) / 2];
+    private long count;
+
+    private PositionStream(BufferedReader text, DataInputStream binary) {
+        this.text = text;
+        this.binary = binary;
+    }
+
+    /**
+     * Opens a text or binary position file.
+     *
+     * @throws IOException if the file cannot be read, or is a binary file of another version
+     */
+    public static PositionStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        in.mark(8);
+        DataInputStream data = new DataInputStream(in);
+        int magic;
+        try {
+            magic = data.readInt();
+        } catch (EOFException e) {
+            magic = 0;
+        }
+        if (magic != MAGIC) {
+            in.reset();
+            return new PositionStream(new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII)), null);
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            in.close();
+            throw new IOException("Unsupported position file version " + version + " in " + file);
+        }
+        return new PositionStream(null, data);
+    }
+
+    /**
+     * Returns the next position, or null at the end of the file.
+     *
+     * @throws IOException if the file cannot be read or a binary record is truncated or too long
+     */
+    public String next() throws IOException {
+        String position = this.text != null ? this.nextLine() : this.nextRecord();
+        if (position != null) {
+            this.count++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the number of positions read so far.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.text != null) {
+            this.text.close();
+        } else {
+            this.binary.close();
+        }
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        while ((line = this.text.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && line.charAt(0) != '#') {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private String nextRecord() throws IOException {
+        int n = this.binary.read();
+        if (n < 0) {
+            return null;
+        }
+        if (n > MAX_MOVES) {
+            throw new IOException("Position " + (this.count + 1) + " has " + n + " moves");
+        }
+        this.binary.readFully(this.packed, 0, (n + 1) / 2);
+        for (int k=0; k<n; k++) {
+            this.moves[k] = (char) ('0' + ((this.packed[k >> 1] >> ((k & 1) * 4)) & 0xF));
+        }
+        return new String(this.moves, 0, n);
+    }
+
+    /**
+     * Converts a text position file to the binary format and returns the number of positions written.
+     *
+     * @throws IllegalArgumentException if a position has more moves than the board has cells or a move that is not
+     *                                  a column
+     */
+    public static long pack(Path textFile, Path binaryFile) throws IOException {
+        long written = 0;
+        byte[] packed = new byte[(MAX_MOVES + 1) / 2];
+        try (PositionStream in = open(textFile);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(binaryFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            String position;
+            while ((position = in.next()) != null) {
+                int n = position.length();
+                if (n > MAX_MOVES) {
+                    throw new IllegalArgumentException("Position has " + n + " moves: " + position);
+                }
+                Arrays.fill(packed, (byte) 0);
+                for (int k=0; k<n; k++) {
+                    int column = position.charAt(k) - '0';
+                    if (column < 0 || column >= Board.BOARD_SIZE) {
+                        throw new IllegalArgumentException("Invalid move " + position.charAt(k) + " in position "
+                                + position);
+                    }
+                    packed[k >> 1] |= column << ((k & 1) * 4);
+                }
+                out.writeByte(n);
+                out.write(packed, 0, (n + 1) / 2);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java PositionStream text-file binary-file");
+            return;
+        }
+        long written = pack(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Wrote " + written + " positions to " + args[1]);
+    }
+}
@@ -2,28 +2,29 @@
  * Implements a Connect Four player that chooses a valid move at random
  */
 
-import java.util.Random;
-
 public class RandomPlayer extends Player {
 
-    private Random random;
+    // Draws one open column per move instead of retrying until a column is open
+    private Rollout random;
     public RandomPlayer() {
-        this.random = new Random();
+        this.random = new Rollout(System.nanoTime());
         return;
     }
 
+    /**
+     * Initializes a player whose moves are reproducible for a given seed
+     */
+    public RandomPlayer(long seed) {
+        this.random = new Rollout(seed);
+    }
+
     public void setPlayerNumber(int number) {
         this.playerNumber = number;
     }
 
     public int chooseMove(Board gameBoard) {
-
-        while (true) {
-            int move = random.nextInt(7);
-
-            if (gameBoard.move(this.playerNumber, move)) {
-                return move;
-            }
-        }
+        int move = random.randomMove(gameBoard);
+        gameBoard.move(this.playerNumber, move);
+        return move;
     }
 }
@@ -0,0 +1,171 @@
+/**
+ * BatchEvaluator that scores the children one after the other with 64-bit integer operations. It is the fallback
+ * where the Vector API is not available, and the reference for VectorBatchEvaluator, which runs the same steps in
+ * vector lanes.
+ *
+ * Instead of visiting the windows one by one, the windows of one direction are counted all at once: shifting the
+ * tiles by 0, 1, 2 and 3 steps in the direction lines up the four cells of every window on the window's lowest cell,
+ * and adding the four shifted masks bit by bit gives the number of tiles in every window as two bit planes. The
+ * number of windows with a given count is then a popcount. Only the lowest cells of real windows (STARTS) are
+ * counted, so the bits that a shift moves across the edge of the board do not matter.
+ *
+ * The opponent's counts do not change between the children and are computed once per call; the weighted-table term
+ * is computed once and only the weight of the new tile is added per child.
+ */
+
+public class ScalarBatchEvaluator implements BatchEvaluator {
+
+    static final int SIZE = Board.BOARD_SIZE;
+    static final int CELLS = SIZE * SIZE;
+    static final int COLUMN_BITS = BitBoard.COLUMN_BITS;
+    static final long COLUMN_MASK = (1L << SIZE) - 1;
+
+    // Shift distances between neighbouring cells: vertical, horizontal, diagonal and anti-diagonal
+    static final int[] SHIFTS = {1, COLUMN_BITS, COLUMN_BITS + 1, COLUMN_BITS - 1};
+
+    // Lowest cell of every window, for each direction
+    static final long[] STARTS = windowStarts();
+
+    // Score of a window holding one, two or three tiles of one player and none of the other
+    static final int ONE = IncrementalEvaluator.windowScore(1);
+    static final int TWO = IncrementalEvaluator.windowScore(2);
+    static final int THREE = IncrementalEvaluator.windowScore(3);
+
+    // Weighted-table value of the cell of every bit, and sum of the values of one column by column and its bits
+    private static final int[] BIT_WEIGHTS = bitWeights();
+    private static final int[][] COLUMN_WEIGHTS = columnWeights();
+
+    // Windows with one, two or three of the opponent's tiles and none of ours yet, and the windows without any of the
+    // opponent's tiles, for each direction; recomputed by every call
+    private final long[] theirOnes = new long[SHIFTS.length];
+    private final long[] theirTwos = new long[SHIFTS.length];
+    private final long[] theirThrees = new long[SHIFTS.length];
+    private final long[] theirEmpty = new long[SHIFTS.length];
+
+    public int evaluateChildren(long mine, long theirs, double[] values) {
+        countOpponentWindows(theirs, this.theirOnes, this.theirTwos, this.theirThrees, this.theirEmpty);
+
+        long mask = mine | theirs;
+        long possible = (mask + BitBoard.BOTTOM_ROW) & BitBoard.FULL_BOARD;
+        int table = tableSum(mine) - tableSum(theirs);
+        boolean lastTile = Long.bitCount(mask) == CELLS - 1;
+
+        int terminal = 0;
+        for (int j=0; j<SIZE; j++) {
+            long tile = possible & (COLUMN_MASK << (j * COLUMN_BITS));
+            if (tile == 0) {
+                continue;
+            }
+            long child = mine | tile;
+            if (BitBoard.hasConnectFour(child)) {
+                values[j] = 1.0;
+                terminal |= 1 << j;
+            } else if (lastTile) {
+                values[j] = 0.0;
+                terminal |= 1 << j;
+            } else {
+                values[j] = value(this.windowTotal(child), table, tile);
+            }
+        }
+        return terminal;
+    }
+
+    /*
+     * Returns the open-window and threat terms of the evaluation for the owner of mine.
+     */
+    private int windowTotal(long mine) {
+        int total = 0;
+        for (int d=0; d<SHIFTS.length; d++) {
+            int shift = SHIFTS[d];
+            long m1 = mine >>> shift;
+            long m2 = mine >>> (2 * shift);
+            long m3 = mine >>> (3 * shift);
+            long odd = mine ^ m1 ^ m2 ^ m3;
+            long pairs = (mine & m1) ^ (m2 & m3) ^ ((mine ^ m1) & (m2 ^ m3));
+            long open = this.theirEmpty[d];
+            long blocked = mine | m1 | m2 | m3;
+
+            total += ONE * (Long.bitCount(odd & ~pairs & open) - Long.bitCount(this.theirOnes[d] & ~blocked))
+                    + TWO * (Long.bitCount(pairs & ~odd & open) - Long.bitCount(this.theirTwos[d] & ~blocked))
+                    + THREE * (Long.bitCount(odd & pairs & open) - Long.bitCount(this.theirThrees[d] & ~blocked));
+        }
+        return total;
+    }
+
+    /*
+     * Stores for every direction the lowest cells of the windows holding one, two or three of the opponent's tiles,
+     * and of the windows holding none of them.
+     */
+    static void countOpponentWindows(long theirs, long[] ones, long[] twos, long[] threes, long[] empty) {
+        for (int d=0; d<SHIFTS.length; d++) {
+            int shift = SHIFTS[d];
+            long t1 = theirs >>> shift;
+            long t2 = theirs >>> (2 * shift);
+            long t3 = theirs >>> (3 * shift);
+            long odd = theirs ^ t1 ^ t2 ^ t3;
+            long pairs = (theirs & t1) ^ (t2 & t3) ^ ((theirs ^ t1) & (t2 ^ t3));
+            ones[d] = odd & ~pairs & STARTS[d];
+            twos[d] = pairs & ~odd & STARTS[d];
+            threes[d] = odd & pairs & STARTS[d];
+            empty[d] = ~(theirs | t1 | t2 | t3) & STARTS[d];
+        }
+    }
+
+    /*
+     * Returns the value of a child from its window terms, the parent's weighted-table difference and the new tile.
+     */
+    static double value(int windowTotal, int table, long tile) {
+        int weight = BIT_WEIGHTS[Long.numberOfTrailingZeros(tile)];
+        return IncrementalEvaluator.scale(windowTotal + IncrementalEvaluator.TABLE_WEIGHT * (table + weight));
+    }
+
+    /*
+     * Returns the sum of the weighted-table values of the cells in tiles.
+     */
+    static int tableSum(long tiles) {
+        int sum = 0;
+        for (int j=0; j<SIZE; j++) {
+            sum += COLUMN_WEIGHTS[j][(int) ((tiles >>> (j * COLUMN_BITS)) & COLUMN_MASK)];
+        }
+        return sum;
+    }
+
+    private static long[] windowStarts() {
+        long[] starts = new long[SHIFTS.length];
+        for (int w=0; w<WinningLines.getWindowCount(); w++) {
+            long window = WinningLines.getMask(w);
+            long lowest = Long.lowestOneBit(window);
+            for (int d=0; d<SHIFTS.length; d++) {
+                int shift = SHIFTS[d];
+                if (window == (lowest | lowest << shift | lowest << (2 * shift) | lowest << (3 * shift))) {
+                    starts[d] |= lowest;
+                }
+            }
+        }
+        return starts;
+    }
+
+    private static int[] bitWeights() {
+        int[] weights = new int[Long.SIZE];
+        for (int i=0; i<SIZE; i++) {
+            for (int j=0; j<SIZE; j++) {
+                weights[j * COLUMN_BITS + i] = IncrementalEvaluator.CELL_WEIGHTS[i * SIZE + j];
+            }
+        }
+        return weights;
+    }
+
+    private static int[][] columnWeights() {
+        int[][] weights = new int[SIZE][1 << SIZE];
+        for (int j=0; j<SIZE; j++) {
+            for (int bits=0; bits<(1 << SIZE); bits++) {
+                for (int i=0; i<SIZE; i++) {
+                    if ((bits & (1 << i)) != 0) {
+                        weights[j][bits] += IncrementalEvaluator.CELL_WEIGHTS[i * SIZE + j];
+                    }
+                }
+            }
+        }
+        return weights;
+    }
+}
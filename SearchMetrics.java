@@ -0,0 +1,260 @@
+/**
+ * Running totals of the work MyPlayer's search does, for exporting from a tournament runner or a server. One instance
+ * can be shared by many players on many threads: the counters are LongAdders, which keep a separate cell per thread
+ * under contention, and are only updated once per move, never per node.
+ *
+ * Move latencies are kept in a histogram with one bucket per power of two microseconds, so percentiles are accurate
+ * to a factor of two. snapshot() returns a consistent-enough copy of everything for reporting; counters keep running
+ * while it is taken.
+ */
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SearchMetrics {
+
+    // Bucket b holds moves that took less than 2^b microseconds (and at least 2^(b-1)); the last one holds the rest
+    private static final int BUCKETS = 40;
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder searchedMoves = new LongAdder();
+    private final LongAdder solvedMoves = new LongAdder();
+    private final LongAdder bookMoves = new LongAdder();
+    private final LongAdder cachedMoves = new LongAdder();
+    private final LongAdder ponderedMoves = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder leaves = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final LongAdder tableProbes = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] latency = new LongAdder[BUCKETS];
+
+    public SearchMetrics() {
+        for (int b=0; b<BUCKETS; b++) {
+            this.latency[b] = new LongAdder();
+        }
+    }
+
+    /**
+     * Adds the results of one move. depth is only taken into account for searched and pondered moves.
+     */
+    public void record(MoveMetrics.Source source, int depth, long nodes, long leaves, long cutoffs, long tableProbes,
+                       long tableHits, long nanos) {
+        this.moves.increment();
+        if (source == MoveMetrics.Source.SEARCH) {
+            this.searchedMoves.increment();
+            this.maxDepth.accumulate(depth);
+        } else if (source == MoveMetrics.Source.PONDER) {
+            this.ponderedMoves.increment();
+            this.maxDepth.accumulate(depth);
+        } else if (source == MoveMetrics.Source.SOLVER) {
+            this.solvedMoves.increment();
+        } else if (source == MoveMetrics.Source.BOOK) {
+            this.bookMoves.increment();
+        } else {
+            this.cachedMoves.increment();
+        }
+        this.nodes.add(nodes);
+        this.leaves.add(leaves);
+        this.cutoffs.add(cutoffs);
+        this.tableProbes.add(tableProbes);
+        this.tableHits.add(tableHits);
+        this.nanos.add(nanos);
+        this.latency[bucket(nanos)].increment();
+    }
+
+    /**
+     * Sets every counter back to zero. Moves recorded while resetting may be partly lost.
+     */
+    public void reset() {
+        this.moves.reset();
+        this.searchedMoves.reset();
+        this.solvedMoves.reset();
+        this.bookMoves.reset();
+        this.cachedMoves.reset();
+        this.ponderedMoves.reset();
+        this.nodes.reset();
+        this.leaves.reset();
+        this.cutoffs.reset();
+        this.tableProbes.reset();
+        this.tableHits.reset();
+        this.nanos.reset();
+        this.maxDepth.reset();
+        for (LongAdder bucket : this.latency) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * Returns a copy of the current totals.
+     */
+    public Snapshot snapshot() {
+        long[] histogram = new long[BUCKETS];
+        for (int b=0; b<BUCKETS; b++) {
+            histogram[b] = this.latency[b].sum();
+        }
+        return new Snapshot(this.moves.sum(), this.searchedMoves.sum(), this.solvedMoves.sum(), this.bookMoves.sum(),
+                this.cachedMoves.sum(), this.ponderedMoves.sum(), this.nodes.sum(), this.leaves.sum(),
+                this.cutoffs.sum(), this.tableProbes.sum(), this.tableHits.sum(), this.nanos.sum(),
+                (int) this.maxDepth.get(), histogram);
+    }
+
+    private static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Totals of a SearchMetrics at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final long moves;
+        private final long searchedMoves;
+        private final long solvedMoves;
+        private final long bookMoves;
+        private final long cachedMoves;
+        private final long ponderedMoves;
+        private final long nodes;
+        private final long leaves;
+        private final long cutoffs;
+        private final long tableProbes;
+        private final long tableHits;
+        private final long nanos;
+        private final int maxDepth;
+        private final long[] histogram;
+
+        private Snapshot(long moves, long searchedMoves, long solvedMoves, long bookMoves, long cachedMoves,
+                         long ponderedMoves, long nodes, long leaves, long cutoffs, long tableProbes, long tableHits,
+                         long nanos, int maxDepth, long[] histogram) {
+            this.moves = moves;
+            this.searchedMoves = searchedMoves;
+            this.solvedMoves = solvedMoves;
+            this.bookMoves = bookMoves;
+            this.cachedMoves = cachedMoves;
+            this.ponderedMoves = ponderedMoves;
+            this.nodes = nodes;
+            this.leaves = leaves;
+            this.cutoffs = cutoffs;
+            this.tableProbes = tableProbes;
+            this.tableHits = tableHits;
+            this.nanos = nanos;
+            this.maxDepth = maxDepth;
+            this.histogram = histogram;
+        }
+
+        public long getMoves() {
+            return this.moves;
+        }
+
+        public long getSearchedMoves() {
+            return this.searchedMoves;
+        }
+
+        public long getSolvedMoves() {
+            return this.solvedMoves;
+        }
+
+        public long getBookMoves() {
+            return this.bookMoves;
+        }
+
+        public long getCachedMoves() {
+            return this.cachedMoves;
+        }
+
+        /**
+         * Returns the number of moves whose position was predicted and searched on the opponent's time.
+         */
+        public long getPonderedMoves() {
+            return this.ponderedMoves;
+        }
+
+        public long getNodes() {
+            return this.nodes;
+        }
+
+        public long getLeaves() {
+            return this.leaves;
+        }
+
+        public long getCutoffs() {
+            return this.cutoffs;
+        }
+
+        public long getTableProbes() {
+            return this.tableProbes;
+        }
+
+        public long getTableHits() {
+            return this.tableHits;
+        }
+
+        /**
+         * Returns the total time spent choosing moves, in nanoseconds.
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        /**
+         * Returns the deepest depth any searched move completed.
+         */
+        public int getMaxDepth() {
+            return this.maxDepth;
+        }
+
+        public double getNodesPerSecond() {
+            return this.nanos == 0 ? 0.0 : this.nodes / (this.nanos / 1e9);
+        }
+
+        public double getTableHitRate() {
+            return this.tableProbes == 0 ? 0.0 : (double) this.tableHits / this.tableProbes;
+        }
+
+        /**
+         * Returns the number of moves in latency bucket b: moves that took less than 2^b microseconds and at least
+         * 2^(b-1) (bucket 0 holds moves under a microsecond).
+         */
+        public long getLatencyCount(int b) {
+            return this.histogram[b];
+        }
+
+        public int getLatencyBuckets() {
+            return this.histogram.length;
+        }
+
+        /**
+         * Returns an upper bound, in microseconds, of the move latency below which the given fraction (0.0 to 1.0)
+         * of the moves fall. Accurate to a factor of two.
+         */
+        public long getLatencyPercentile(double fraction) {
+            long target = (long) Math.ceil(fraction * this.moves);
+            long seen = 0;
+            for (int b=0; b<this.histogram.length; b++) {
+                seen += this.histogram[b];
+                if (seen >= target && seen > 0) {
+                    return 1L << b;
+                }
+            }
+            return 1L << (this.histogram.length - 1);
+        }
+
+        @Override
+        public String toString() {
+            return "Moves: " + this.moves + " (searched " + this.searchedMoves + ", solved " + this.solvedMoves
+                    + ", book " + this.bookMoves + ", cached " + this.cachedMoves + ", pondered " + this.ponderedMoves
+                    + ")\n"
+                    + "Nodes: " + this.nodes + ", leaves: " + this.leaves + ", cutoffs: " + this.cutoffs
+                    + ", max depth: " + this.maxDepth + "\n"
+                    + String.format("Nodes/sec: %.0f, table hit rate: %.3f%n", this.getNodesPerSecond(),
+                            this.getTableHitRate())
+                    + "Move latency (us): p50 < " + this.getLatencyPercentile(0.5)
+                    + ", p90 < " + this.getLatencyPercentile(0.9)
+                    + ", p99 < " + this.getLatencyPercentile(0.99)
+                    + ", max < " + this.getLatencyPercentile(1.0);
+        }
+    }
+}
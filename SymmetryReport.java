@@ -0,0 +1,53 @@
+/**
+ * Measures how many nodes AlphaBetaSearch saves by treating mirrored positions as the same position. Every opening
+ * position of PositionCorpus plus a few more early positions is searched to a fixed depth with a fresh transposition
+ * table, once with symmetry reduction off and once with it on, and the node counts are printed side by side.
+ *
+ * Run with: java SymmetryReport [depth]
+ */
+public class SymmetryReport {
+
+    // Early positions, symmetric and not, given as the columns played so far
+    private static final String[] POSITIONS = {
+            "",
+            "33",
+            "3324",
+            "2",
+            "24",
+            "0606",
+            "3333",
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        MyPlayer evaluator = new MyPlayer();
+        System.out.println("Depth: " + depth);
+        System.out.println("position   symmetric  nodes (off)  nodes (on)  reduction");
+
+        long totalOff = 0;
+        long totalOn = 0;
+        for (String position : POSITIONS) {
+            Board board = new BitBoard();
+            int player = PositionCorpus.play(position, board);
+            long off = search(evaluator, board, depth, player, false);
+            long on = search(evaluator, board, depth, player, true);
+            totalOff += off;
+            totalOn += on;
+            System.out.printf("%-9s  %9s  %11d  %10d  %8.1f%%%n", position.isEmpty() ? "(empty)" : position,
+                    board.isSymmetric(), off, on, 100.0 * (off - on) / off);
+        }
+        System.out.printf("%-9s  %9s  %11d  %10d  %8.1f%%%n", "total", "", totalOff, totalOn,
+                100.0 * (totalOff - totalOn) / totalOff);
+    }
+
+    private static long search(MyPlayer evaluator, Board board, int depth, int player, boolean symmetryReduction) {
+        AlphaBetaSearch search = new AlphaBetaSearch(evaluator);
+        search.setTranspositionTable(new TranspositionTable(1 << 20,
+                TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+        search.setIncrementalEvaluation(true);
+        search.setSymmetryReduction(symmetryReduction);
+        search.search(board, depth, player);
+        return search.nodes;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Runs a synchronous Player as an AsyncPlayer: chooseMove() is called on an executor and its result completes the
+ * future. The blocking call still holds an executor thread while it runs, but the game waiting for it does not.
+ *
+ * Cancelling the future before chooseMove() has started skips the call. A player that misses the deadline has its
+ * future completed with a TimeoutException and forfeits, while chooseMove() runs to the end in the background. The
+ * exception is a MyPlayer that is running a search MyPlayer.stop() can end (ALPHA_BETA mode, not the endgame solver):
+ * its search is stopped and returns the best move it has found, and only if that takes longer than STOP_GRACE_MILLIS
+ * does the player forfeit. Cancelling a running call stops such a search too.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SyncPlayerAdapter implements AsyncPlayer {
+
+    // One daemon thread fires the deadlines of every adapter
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor((task) -> {
+        Thread thread = new Thread(task, "move-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Time a stopped MyPlayer search has to return its move after the deadline
+    private static final long STOP_GRACE_MILLIS = 100;
+
+    private final Player player;
+    private final Executor executor;
+
+    /**
+     * Wraps player, whose chooseMove() will run on executor.
+     */
+    public SyncPlayerAdapter(Player player, Executor executor) {
+        this.player = player;
+        this.executor = executor;
+    }
+
+    public Player getPlayer() {
+        return this.player;
+    }
+
+    @Override
+    public void setPlayerNumber(int number) {
+        this.player.setPlayerNumber(number);
+    }
+
+    @Override
+    public int getPlayerNumber() {
+        return this.player.playerNumber;
+    }
+
+    @Override
+    public CompletableFuture<Integer> requestMove(Board gameBoard, long deadlineNanos) {
+        CompletableFuture<Integer> move = new CompletableFuture<Integer>();
+
+        ScheduledFuture<?> deadline = null;
+        if (deadlineNanos != Long.MAX_VALUE) {
+            deadline = TIMER.schedule(() -> this.deadlinePassed(move), deadlineNanos - System.nanoTime(),
+                    TimeUnit.NANOSECONDS);
+        }
+        final ScheduledFuture<?> timer = deadline;
+        move.whenComplete((column, error) -> {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            if (move.isCancelled()) {
+                this.stop();
+            }
+        });
+
+        this.executor.execute(() -> {
+            if (move.isDone()) {
+                return;
+            }
+            try {
+                move.complete(this.player.chooseMove(gameBoard));
+            } catch (RuntimeException e) {
+                move.completeExceptionally(e);
+            }
+        });
+        return move;
+    }
+
+    private void deadlinePassed(CompletableFuture<Integer> move) {
+        if (this.stop()) {
+            // The search returns its best move so far and completes the future itself
+            TIMER.schedule(() -> this.timedOut(move), STOP_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            this.timedOut(move);
+        }
+    }
+
+    private void timedOut(CompletableFuture<Integer> move) {
+        move.completeExceptionally(new TimeoutException("Player " + this.player.playerNumber
+                + " did not move in time"));
+    }
+
+    /*
+     * Stops the search of a MyPlayer and returns true if one was running.
+     */
+    private boolean stop() {
+        return this.player instanceof MyPlayer && ((MyPlayer) this.player).stop();
+    }
+}
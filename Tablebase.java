@@ -0,0 +1,254 @@
+/**
+ * Memory-mapped table of exact endgame results, generated offline by TablebaseGenerator. EndgameSolver probes it in
+ * every position with at most getMaxEmpty() empty cells and stops searching there when the position is in the table.
+ *
+ * Positions are stored under their key in EndgameSolver's layout (the tiles of the player to move plus every occupied
+ * cell plus BitBoard.BOTTOM_ROW, which is unique and can be decoded back into the position), and a position and its
+ * mirror image share one entry. Keys are grouped by the number of empty cells (the layer) and then split into
+ * partitions by a hash of the key; each partition is a sorted array of keys followed by one byte per key with the
+ * exact score in EndgameSolver's scale, so the index of a position is its rank in the partition:
+ *
+ *   header:    int magic, int version, int max empty cells, int partition bits, long positions, padded to 64 bytes
+ *   directory: long offset, long count for every layer from 1 to max empty cells and every partition
+ *   data:      per layer and partition: long keys in ascending order, byte scores, padded to 8 bytes
+ *
+ * Every layer is mapped separately, so a layer must be smaller than 2 GB. Mapping does not read the file; the pages of
+ * a partition are read by the operating system when it is first probed. Probing is thread-safe.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+public class Tablebase {
+
+    /**
+     * Returned by probe() for a position that is not in the table.
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    static final int MAGIC = 0x43465442; // "CFTB"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int DIRECTORY_ENTRY_BYTES = 16;
+
+    private final int maxEmpty;
+    private final int partitionBits;
+    private final long positions;
+
+    // Mapped data of every layer, and the offset in it and the count of every partition, indexed [layer][partition]
+    private final ByteBuffer[] layers;
+    private final int[][] offsets;
+    private final int[][] counts;
+
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /*
+     * Maps the layers 1 to mappedLayers of a table whose directory is given, from an absolute file offset and a count
+     * per layer and partition.
+     */
+    Tablebase(FileChannel channel, int maxEmpty, int partitionBits, long positions, long[][] fileOffsets,
+              long[][] fileCounts, int mappedLayers) throws IOException {
+        this.maxEmpty = maxEmpty;
+        this.partitionBits = partitionBits;
+        this.positions = positions;
+        this.layers = new ByteBuffer[maxEmpty + 1];
+        this.offsets = new int[maxEmpty + 1][];
+        this.counts = new int[maxEmpty + 1][];
+
+        int partitions = 1 << partitionBits;
+        for (int e=1; e<=mappedLayers; e++) {
+            long start = fileOffsets[e][0];
+            long end = fileOffsets[e][partitions - 1] + dataBytes(fileCounts[e][partitions - 1]);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Layer " + e + " of the tablebase is larger than 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            buffer.order(ByteOrder.nativeOrder());
+            this.layers[e] = buffer;
+            this.offsets[e] = new int[partitions];
+            this.counts[e] = new int[partitions];
+            for (int p=0; p<partitions; p++) {
+                this.offsets[e][p] = (int) (fileOffsets[e][p] - start);
+                this.counts[e][p] = (int) fileCounts[e][p];
+            }
+        }
+    }
+
+    /**
+     * Maps the tablebase stored in file.
+     *
+     * @throws IOException if the file cannot be mapped or is not a tablebase
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a tablebase");
+            }
+            int maxEmpty = header.getInt(8);
+            int partitionBits = header.getInt(12);
+            long positions = header.getLong(16);
+            if (maxEmpty < 1 || maxEmpty > EndgameSolver.CELLS || partitionBits < 0 || partitionBits > 16) {
+                throw new IOException(file + " has an invalid header");
+            }
+
+            int partitions = 1 << partitionBits;
+            ByteBuffer directory = ByteBuffer.allocate(maxEmpty * partitions * DIRECTORY_ENTRY_BYTES)
+                    .order(ByteOrder.nativeOrder());
+            readFully(channel, directory, HEADER_BYTES);
+            long[][] fileOffsets = new long[maxEmpty + 1][partitions];
+            long[][] fileCounts = new long[maxEmpty + 1][partitions];
+            for (int e=1; e<=maxEmpty; e++) {
+                for (int p=0; p<partitions; p++) {
+                    int entry = ((e - 1) * partitions + p) * DIRECTORY_ENTRY_BYTES;
+                    fileOffsets[e][p] = directory.getLong(entry);
+                    fileCounts[e][p] = directory.getLong(entry + 8);
+                    if (fileCounts[e][p] < 0 || fileOffsets[e][p] + dataBytes(fileCounts[e][p]) > channel.size()) {
+                        throw new IOException(file + " is truncated");
+                    }
+                }
+            }
+            return new Tablebase(channel, maxEmpty, partitionBits, positions, fileOffsets, fileCounts, maxEmpty);
+        }
+    }
+
+    /**
+     * Returns the exact score of the position for the player to move, in EndgameSolver's scale, or NOT_FOUND.
+     *
+     * @param current   Tiles of the player to move, in BitBoard's layout
+     * @param mask      Every occupied cell
+     */
+    public int probe(long current, long mask) {
+        int empty = EndgameSolver.CELLS - Long.bitCount(mask);
+        if (empty < 1 || empty > this.maxEmpty || this.layers[empty] == null) {
+            return NOT_FOUND;
+        }
+        this.probes.incrementAndGet();
+
+        long key = canonicalKey(current + mask + BitBoard.BOTTOM_ROW);
+        int partition = partition(key, this.partitionBits);
+        ByteBuffer layer = this.layers[empty];
+        int base = this.offsets[empty][partition];
+        int count = this.counts[empty][partition];
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = layer.getLong(base + middle * 8);
+            if (found < key) {
+                low = middle + 1;
+            } else if (found > key) {
+                high = middle - 1;
+            } else {
+                this.hits.incrementAndGet();
+                return layer.get(base + count * 8 + middle);
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Returns the exact score of gameBoard for playerNumber, who is to move, or NOT_FOUND.
+     */
+    public int probe(BitBoard gameBoard, int playerNumber) {
+        long mask = gameBoard.getPlayerTiles(1) | gameBoard.getPlayerTiles(2);
+        return this.probe(gameBoard.getPlayerTiles(playerNumber), mask);
+    }
+
+    public int getMaxEmpty() {
+        return this.maxEmpty;
+    }
+
+    public long getPositionCount() {
+        return this.positions;
+    }
+
+    public long getProbes() {
+        return this.probes.get();
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /*
+     * Calls action with the key of every position in the table, layer by layer. Used by TablebaseCheck.
+     */
+    void forEachKey(LongConsumer action) {
+        for (int e=1; e<this.layers.length; e++) {
+            if (this.layers[e] == null) {
+                continue;
+            }
+            for (int p=0; p<this.offsets[e].length; p++) {
+                for (int i=0; i<this.counts[e][p]; i++) {
+                    action.accept(this.layers[e].getLong(this.offsets[e][p] + i * 8));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the smaller of key and the key of its mirror image. Keys have one byte per column, so mirroring the
+     * position reverses the bytes of its key.
+     */
+    static long canonicalKey(long key) {
+        return Math.min(key, Long.reverseBytes(key) >>> (Long.SIZE - Board.BOARD_SIZE * BitBoard.COLUMN_BITS));
+    }
+
+    /*
+     * Returns the tiles of the player to move of the position with the given key. Each column byte of a key is 1
+     * above the column's top tile, followed by the tiles of the player to move.
+     */
+    static long currentOf(long key) {
+        long current = 0;
+        for (int j=0; j<Board.BOARD_SIZE; j++) {
+            long column = (key >>> (j * BitBoard.COLUMN_BITS)) & 0xFF;
+            current |= (column & (Long.highestOneBit(column) - 1)) << (j * BitBoard.COLUMN_BITS);
+        }
+        return current;
+    }
+
+    /*
+     * Returns every occupied cell of the position with the given key.
+     */
+    static long maskOf(long key) {
+        long mask = 0;
+        for (int j=0; j<Board.BOARD_SIZE; j++) {
+            long column = (key >>> (j * BitBoard.COLUMN_BITS)) & 0xFF;
+            mask |= (Long.highestOneBit(column) - 1) << (j * BitBoard.COLUMN_BITS);
+        }
+        return mask;
+    }
+
+    static int partition(long key, int partitionBits) {
+        if (partitionBits == 0) {
+            return 0;
+        }
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - partitionBits));
+    }
+
+    /*
+     * Returns the bytes taken by a partition of count positions, padded so the next one starts 8-byte aligned.
+     */
+    static long dataBytes(long count) {
+        return (count * 9 + 7) & ~7L;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of tablebase");
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Consistency check for Tablebase and TablebaseGenerator. Generates a small table from the endgames of a few random
+ * games into a temporary file, then solves every stored position with an EndgameSolver that has no tablebase and
+ * compares the score with Tablebase.probe(). Every MIRROR_SAMPLE-th position is also probed as its mirror image,
+ * which shares the entry. Deletes the file afterwards and exits with status 1 if anything did not match; the first
+ * mismatch is printed.
+ *
+ * Run with: java TablebaseCheck [max empty] [random games] [seed]
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TablebaseCheck {
+
+    private static final int MIRROR_SAMPLE = 8;
+
+    public static void main(String[] args) throws IOException {
+        int maxEmpty = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        Path file = Files.createTempFile("tablebase-check", ".cftb");
+        boolean ok;
+        try {
+            TablebaseGenerator generator = new TablebaseGenerator(maxEmpty, 2, file);
+            generator.addRandomSeeds(games, seed);
+            generator.generate(file);
+            Tablebase tablebase = Tablebase.open(file);
+
+            EndgameSolver solver = new EndgameSolver(20);
+            BitBoard board = new BitBoard();
+            BitBoard mirror = new BitBoard();
+            // Positions and mirror images checked, and mismatches
+            long[] checked = new long[3];
+            tablebase.forEachKey((key) -> {
+                int player = setUp(board, Tablebase.currentOf(key), Tablebase.maskOf(key), false);
+                int stored = tablebase.probe(board, player);
+                int solved = solver.solve(board, player);
+                if (stored != solved) {
+                    mismatch(checked, "Position " + Long.toHexString(key) + ": table " + stored + ", solver "
+                            + solved, board);
+                }
+                if (checked[0]++ % MIRROR_SAMPLE == 0) {
+                    setUp(mirror, Tablebase.currentOf(key), Tablebase.maskOf(key), true);
+                    int mirrored = tablebase.probe(mirror, player);
+                    if (mirrored != solved) {
+                        mismatch(checked, "Mirror of " + Long.toHexString(key) + ": table " + mirrored + ", solver "
+                                + solved, mirror);
+                    }
+                    checked[1]++;
+                }
+            });
+
+            if (checked[0] != tablebase.getPositionCount()) {
+                System.out.println("Table holds " + tablebase.getPositionCount() + " positions, " + checked[0]
+                        + " were stored");
+                checked[2]++;
+            }
+            ok = checked[2] == 0;
+            System.out.println((ok ? "OK: " : checked[2] + " mismatches in ") + checked[0] + " positions and "
+                    + checked[1] + " mirror images (" + generator.seeds + " seeds, up to " + maxEmpty
+                    + " empty cells)");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Sets board to the position with the given tiles of the player to move and occupied cells, mirrored if mirror
+     * is true, and returns the player to move.
+     */
+    private static int setUp(BitBoard board, long current, long mask, boolean mirror) {
+        board.copyFrom(new BitBoard());
+        int player = Long.bitCount(mask) % 2 == 0 ? 1 : 2;
+        int opponent = player == 1 ? 2 : 1;
+        for (int j=0; j<Board.BOARD_SIZE; j++) {
+            int column = mirror ? Board.BOARD_SIZE - 1 - j : j;
+            for (int i=0; i<Board.BOARD_SIZE; i++) {
+                long cell = 1L << (j * BitBoard.COLUMN_BITS + i);
+                if ((mask & cell) != 0) {
+                    board.move((current & cell) != 0 ? player : opponent, column);
+                }
+            }
+        }
+        return player;
+    }
+
+    private static void mismatch(long[] checked, String message, Board board) {
+        if (checked[2]++ == 0) {
+            System.out.println("Mismatch: " + message);
+            board.printBoard();
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/**
+ * Builds a Tablebase file offline. The table covers every position with at most maxEmpty empty cells that can be
+ * reached from a set of seed positions: the seeds can be the endgames of random games or the positions of a
+ * PositionStream file, for example the openings MyPlayer plays. Every legal position with a handful of empty cells is
+ * far too many to store on a 7x7 board (positions with 4 empty cells alone have billions of colorings), so the seeds
+ * choose which endgames are worth storing.
+ *
+ * Generation runs in two passes that never hold more than one partition of one layer in memory, besides a set of
+ * at most 2^24 positions that keeps the enumeration from visiting a transposition twice:
+ *
+ *   1. Every position reachable from a seed is enumerated with a depth-first search and the key of every position
+ *      with at most maxEmpty empty cells is appended to a temporary file for its layer and partition.
+ *   2. The layers are solved in order of their number of empty cells, starting with 1 (retrograde analysis): the keys
+ *      of a partition are read, sorted and deduplicated, and every position is scored from its moves, which either
+ *      end the game or lead to a position of the previous layer. That layer is already in the output file and is
+ *      probed through a read-only mapping of it.
+ *
+ * Run with: java TablebaseGenerator file max-empty [random games or position file] [partition bits] [seed]
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TablebaseGenerator {
+
+    private static final int CELLS = EndgameSolver.CELLS;
+    private static final long COLUMN_MASK = (1L << Board.BOARD_SIZE) - 1;
+
+    // Largest set of visited positions kept per seed, 128 MB
+    private static final int MAX_VISITED = 1 << 24;
+
+    private final int maxEmpty;
+    private final int partitionBits;
+    private final Path directory;
+
+    // Temporary key files indexed [layer][partition], open during the first pass
+    private final DataOutputStream[][] keyFiles;
+
+    // Positions visited from the current seed, so transpositions are only enumerated once
+    private long[] visited = new long[1 << 16];
+    private int visitedCount;
+
+    // Statistics
+    long seeds;
+    long skippedSeeds;
+    long enumerated;
+    long positions;
+
+    /**
+     * Creates a generator for positions with at most maxEmpty empty cells, split into 2^partitionBits partitions per
+     * layer. Temporary files are kept in a new directory next to the output file until generate() finishes.
+     */
+    public TablebaseGenerator(int maxEmpty, int partitionBits, Path output) throws IOException {
+        if (maxEmpty < 1 || maxEmpty > CELLS || partitionBits < 0 || partitionBits > 16) {
+            throw new IllegalArgumentException("Invalid tablebase size: " + maxEmpty + " empty cells, "
+                    + partitionBits + " partition bits");
+        }
+        this.maxEmpty = maxEmpty;
+        this.partitionBits = partitionBits;
+        Path parent = output.toAbsolutePath().getParent();
+        this.directory = Files.createTempDirectory(parent, "tablebase");
+
+        int partitions = 1 << partitionBits;
+        this.keyFiles = new DataOutputStream[maxEmpty + 1][partitions];
+        for (int e=1; e<=maxEmpty; e++) {
+            for (int p=0; p<partitions; p++) {
+                this.keyFiles[e][p] = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(this.keyFile(e, p)), 8192));
+            }
+        }
+    }
+
+    /**
+     * Adds the positions with at most maxEmpty empty cells reachable from the position reached by moves, given as the
+     * columns played so far starting with player 1. Returns false, adding nothing, if moves is not a valid game or the
+     * game is already over. The cost grows quickly with the number of empty cells of the seed above maxEmpty.
+     */
+    public boolean addSeed(String moves) throws IOException {
+        BitBoard board = new BitBoard();
+        int player = 1;
+        for (int k=0; k<moves.length(); k++) {
+            int column = moves.charAt(k) - '0';
+            if (!board.move(player, column) || board.checkIfGameOver(column) >= 0) {
+                this.skippedSeeds++;
+                return false;
+            }
+            player = (player == 1 ? 2 : 1);
+        }
+
+        this.seeds++;
+        Arrays.fill(this.visited, 0);
+        this.visitedCount = 0;
+        long mask = board.getPlayerTiles(1) | board.getPlayerTiles(2);
+        this.enumerate(board.getPlayerTiles(player), mask);
+        return true;
+    }
+
+    /**
+     * Adds the endgames of random games: every game is played with random moves that do not end it until it has
+     * maxEmpty empty cells, and is added as a seed unless no such move was left. Returns the number of seeds added.
+     */
+    public int addRandomSeeds(int games, long seed) throws IOException {
+        Rollout random = new Rollout(seed);
+        int[] candidates = new int[Board.BOARD_SIZE];
+        int added = 0;
+        for (int g=0; g<games; g++) {
+            BitBoard board = new BitBoard();
+            StringBuilder moves = new StringBuilder();
+            int player = 1;
+            while (moves.length() < CELLS - this.maxEmpty) {
+                int count = 0;
+                for (int j=0; j<Board.BOARD_SIZE; j++) {
+                    if (board.move(player, j)) {
+                        if (board.checkIfGameOver(j) < 0) {
+                            candidates[count++] = j;
+                        }
+                        board.undoMove(j);
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+                int column = candidates[random.nextInt(count)];
+                board.move(player, column);
+                moves.append(column);
+                player = (player == 1 ? 2 : 1);
+            }
+            if (moves.length() == CELLS - this.maxEmpty && this.addSeed(moves.toString())) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /*
+     * Visits the position, which is not over, and every position below it that has not been visited from this seed.
+     */
+    private void enumerate(long current, long mask) throws IOException {
+        int empty = CELLS - Long.bitCount(mask);
+        if (empty <= this.maxEmpty) {
+            long key = Tablebase.canonicalKey(current + mask + BitBoard.BOTTOM_ROW);
+            this.keyFiles[empty][Tablebase.partition(key, this.partitionBits)].writeLong(key);
+            this.enumerated++;
+        }
+
+        long possible = (mask + BitBoard.BOTTOM_ROW) & BitBoard.FULL_BOARD;
+        for (int j=0; j<Board.BOARD_SIZE; j++) {
+            long move = possible & (COLUMN_MASK << (j * BitBoard.COLUMN_BITS));
+            if (move == 0 || BitBoard.hasConnectFour(current | move) || empty == 1) {
+                continue;
+            }
+            long next = current ^ mask;
+            long nextMask = mask | move;
+            if (this.markVisited(next + nextMask + BitBoard.BOTTOM_ROW)) {
+                this.enumerate(next, nextMask);
+            }
+        }
+    }
+
+    /*
+     * Adds key to the positions visited from this seed and returns true if it was not there yet. Once the set reaches
+     * MAX_VISITED slots it is cleared when full instead of growing; positions are then enumerated again, but their
+     * duplicate keys are dropped when the partitions are sorted.
+     */
+    private boolean markVisited(long key) {
+        if (2 * (this.visitedCount + 1) > this.visited.length) {
+            long[] old = this.visited;
+            this.visitedCount = 0;
+            if (old.length >= MAX_VISITED) {
+                Arrays.fill(old, 0);
+            } else {
+                this.visited = new long[old.length * 2];
+                for (long k : old) {
+                    if (k != 0) {
+                        this.markVisited(k);
+                    }
+                }
+            }
+        }
+        int mask = this.visited.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (this.visited[slot] != 0) {
+            if (this.visited[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.visited[slot] = key;
+        this.visitedCount++;
+        return true;
+    }
+
+    /**
+     * Solves every enumerated position, writes the tablebase to output and deletes the temporary files. Returns the
+     * number of positions in the table.
+     */
+    public long generate(Path output) throws IOException {
+        int partitions = 1 << this.partitionBits;
+        for (int e=1; e<=this.maxEmpty; e++) {
+            for (int p=0; p<partitions; p++) {
+                this.keyFiles[e][p].close();
+            }
+        }
+
+        long[][] offsets = new long[this.maxEmpty + 1][partitions];
+        long[][] counts = new long[this.maxEmpty + 1][partitions];
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = Tablebase.HEADER_BYTES
+                    + (long) this.maxEmpty * partitions * Tablebase.DIRECTORY_ENTRY_BYTES;
+            Tablebase previous = null;
+            for (int e=1; e<=this.maxEmpty; e++) {
+                for (int p=0; p<partitions; p++) {
+                    long[] keys = this.readKeys(e, p);
+                    byte[] scores = new byte[keys.length];
+                    for (int i=0; i<keys.length; i++) {
+                        scores[i] = (byte) this.solve(keys[i], previous);
+                    }
+
+                    ByteBuffer data = ByteBuffer.allocate((int) Tablebase.dataBytes(keys.length))
+                            .order(ByteOrder.nativeOrder());
+                    for (long key : keys) {
+                        data.putLong(key);
+                    }
+                    data.put(scores);
+                    data.clear();
+                    writeFully(channel, data, position);
+
+                    offsets[e][p] = position;
+                    counts[e][p] = keys.length;
+                    position += data.capacity();
+                    this.positions += keys.length;
+                    Files.delete(this.keyFile(e, p));
+                }
+                // The next layer looks its moves up in this one
+                previous = new Tablebase(channel, this.maxEmpty, this.partitionBits, this.positions, offsets, counts,
+                        e);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES
+                    + this.maxEmpty * partitions * Tablebase.DIRECTORY_ENTRY_BYTES).order(ByteOrder.nativeOrder());
+            header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(this.maxEmpty)
+                    .putInt(this.partitionBits).putLong(this.positions);
+            header.position(Tablebase.HEADER_BYTES);
+            for (int e=1; e<=this.maxEmpty; e++) {
+                for (int p=0; p<partitions; p++) {
+                    header.putLong(offsets[e][p]).putLong(counts[e][p]);
+                }
+            }
+            header.clear();
+            writeFully(channel, header, 0);
+        }
+        Files.delete(this.directory);
+        return this.positions;
+    }
+
+    /*
+     * Returns the distinct keys of a partition in ascending order.
+     */
+    private long[] readKeys(int layer, int partition) throws IOException {
+        Path file = this.keyFile(layer, partition);
+        long size = Files.size(file) / 8;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Partition " + partition + " of layer " + layer + " is too large; use more "
+                    + "partition bits");
+        }
+        long[] keys = new long[(int) size];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 65536))) {
+            for (int i=0; i<keys.length; i++) {
+                keys[i] = in.readLong();
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated key file " + file, e);
+        }
+
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i=0; i<keys.length; i++) {
+            if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    /*
+     * Returns the exact score of the position with the given key for the player to move. Every move either ends the
+     * game or leads to a position of the previous layer.
+     */
+    private int solve(long key, Tablebase previous) {
+        long current = Tablebase.currentOf(key);
+        long mask = Tablebase.maskOf(key);
+        int moves = Long.bitCount(mask);
+
+        int best = Integer.MIN_VALUE;
+        long possible = (mask + BitBoard.BOTTOM_ROW) & BitBoard.FULL_BOARD;
+        for (int j=0; j<Board.BOARD_SIZE; j++) {
+            long move = possible & (COLUMN_MASK << (j * BitBoard.COLUMN_BITS));
+            if (move == 0) {
+                continue;
+            }
+            int score;
+            if (BitBoard.hasConnectFour(current | move)) {
+                score = CELLS - moves;
+            } else if (moves + 1 == CELLS) {
+                score = 0;
+            } else {
+                int reply = previous.probe(current ^ mask, mask | move);
+                if (reply == Tablebase.NOT_FOUND) {
+                    throw new IllegalStateException("Position " + Long.toHexString(key) + " has a move that was not "
+                            + "enumerated");
+                }
+                score = -reply;
+            }
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    private Path keyFile(int layer, int partition) {
+        return this.directory.resolve(layer + "-" + partition + ".keys");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java TablebaseGenerator file max-empty [random games or position file] "
+                    + "[partition bits] [seed]");
+            return;
+        }
+        Path output = Paths.get(args[0]);
+        int maxEmpty = Integer.parseInt(args[1]);
+        String seeds = args.length > 2 ? args[2] : "1000";
+        int partitionBits = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        long start = System.nanoTime();
+        TablebaseGenerator generator = new TablebaseGenerator(maxEmpty, partitionBits, output);
+        if (seeds.chars().allMatch(Character::isDigit)) {
+            generator.addRandomSeeds(Integer.parseInt(seeds), seed);
+        } else {
+            try (PositionStream in = PositionStream.open(Paths.get(seeds))) {
+                String position;
+                while ((position = in.next()) != null) {
+                    generator.addSeed(position);
+                }
+            }
+        }
+        long enumerated = System.nanoTime();
+        long positions = generator.generate(output);
+        long end = System.nanoTime();
+
+        System.out.println("Seeds: " + generator.seeds + " (skipped " + generator.skippedSeeds + ")");
+        System.out.println("Enumerated: " + generator.enumerated + " keys in " + (enumerated - start) / 1e9 + " sec");
+        System.out.println("Solved: " + positions + " positions in " + (end - enumerated) / 1e9 + " sec");
+        System.out.println("File: " + Files.size(output) + " bytes");
+    }
+}
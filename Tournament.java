@@ -0,0 +1,199 @@
+/**
+ * Plays many games between two players across a thread pool, without printing anything, and aggregates the results
+ * into a TournamentReport. Used for nightly regression runs of MyPlayer against RandomPlayer and against earlier
+ * configurations of MyPlayer.
+ *
+ * Every game gets fresh players created from a seed derived from the tournament seed and the game number, so a
+ * tournament with the same seed plays the same games no matter how many threads run it. By default the players take
+ * turns moving first.
+ *
+ * Run with: java Tournament [games] [threads] [seed] [opponent] [log]
+ * where opponent is random (default), negamax, heuristic or mcts, and log is a GameLog file the games are appended to.
+ */
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+public class Tournament {
+
+    private final LongFunction<Player> playerA;
+    private final LongFunction<Player> playerB;
+    private final int threads;
+    private final long seed;
+    private boolean alternateColors = true;
+    private GameLog log;
+
+    /**
+     * Creates a tournament between the players built by playerA and playerB. Each function is given a seed and must
+     * return a new Player; players are never shared between games.
+     */
+    public Tournament(LongFunction<Player> playerA, LongFunction<Player> playerB, int threads, long seed) {
+        this.playerA = playerA;
+        this.playerB = playerB;
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+    }
+
+    /**
+     * If true (the default) A moves first in even games and B in odd games; otherwise A always moves first.
+     */
+    public void setAlternateColors(boolean alternateColors) {
+        this.alternateColors = alternateColors;
+    }
+
+    /**
+     * Appends every game to log, or logs nothing if log is null (the default). A is logged as player id 0 and B as
+     * player id 1, and the seed of every game is the one its players were created from.
+     */
+    public void setLog(GameLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Plays the given number of games and returns the aggregated results.
+     */
+    public TournamentReport run(int games) {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        try {
+            List<Future<TournamentReport>> parts = new ArrayList<Future<TournamentReport>>();
+            for (int t=0; t<this.threads; t++) {
+                final int first = t;
+                parts.add(pool.submit(() -> this.playGames(first, games)));
+            }
+
+            TournamentReport report = new TournamentReport();
+            for (Future<TournamentReport> part : parts) {
+                report.merge(part.get());
+            }
+            report.elapsedNanos = System.nanoTime() - start;
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A tournament game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+     * Plays games first, first + threads, first + 2 * threads, ... and returns their results.
+     */
+    private TournamentReport playGames(int first, int games) {
+        TournamentReport report = new TournamentReport();
+        for (int g=first; g<games; g+=this.threads) {
+            long gameSeed = this.seed ^ (g * 0x9E3779B97F4A7C15L);
+            SplittableRandom random = new SplittableRandom(gameSeed);
+            Player a = this.playerA.apply(random.nextLong());
+            Player b = this.playerB.apply(random.nextLong());
+            boolean aFirst = !this.alternateColors || g % 2 == 0;
+
+            Game game = aFirst ? new Game(a, b) : new Game(b, a);
+            game.setQuiet(true);
+            if (this.log != null) {
+                game.setLog(this.log, aFirst ? 0 : 1, aFirst ? 1 : 0);
+                game.setSeed(gameSeed);
+            }
+            int result = game.startGame(false);
+
+            int aNumber = aFirst ? 1 : 2;
+            int bNumber = aFirst ? 2 : 1;
+            report.games++;
+            if (result == 0) {
+                report.ties++;
+            } else if (result == aNumber) {
+                report.winsA++;
+                if (game.wasForfeited()) {
+                    report.forfeitsB++;
+                }
+            } else {
+                report.winsB++;
+                if (game.wasForfeited()) {
+                    report.forfeitsA++;
+                }
+            }
+            report.movesA += game.getMoveCount(aNumber);
+            report.movesB += game.getMoveCount(bNumber);
+            report.moveNanosA += game.getMoveNanos(aNumber);
+            report.moveNanosB += game.getMoveNanos(bNumber);
+        }
+        return report;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        String opponent = args.length > 3 ? args[3] : "random";
+
+        // Search totals of every engine player, across all threads
+        SearchMetrics metrics = new SearchMetrics();
+        LongFunction<Player> engine = (s) -> {
+            MyPlayer player = new MyPlayer();
+            player.setVerbose(false);
+            player.setMetrics(metrics);
+            player.setSearchMode(MyPlayer.SearchMode.ALPHA_BETA);
+            player.setSearchDepth(5);
+            player.setEvaluation(MyPlayer.Evaluation.INCREMENTAL);
+            player.setSymmetryReduction(true);
+            return player;
+        };
+
+        LongFunction<Player> other;
+        if (opponent.equals("random")) {
+            other = (s) -> new RandomPlayer(s);
+        } else if (opponent.equals("negamax")) {
+            // The original fixed-depth search, at a depth that keeps nightly runs short
+            other = (s) -> {
+                MyPlayer player = new MyPlayer();
+                player.setVerbose(false);
+                player.setSearchDepth(3);
+                return player;
+            };
+        } else if (opponent.equals("heuristic")) {
+            // Same search as the engine, scoring leaves with the original heuristic
+            other = (s) -> {
+                MyPlayer player = new MyPlayer();
+                player.setVerbose(false);
+                player.setSearchMode(MyPlayer.SearchMode.ALPHA_BETA);
+                player.setSearchDepth(5);
+                player.setEvaluation(MyPlayer.Evaluation.HEURISTIC);
+                return player;
+            };
+        } else if (opponent.equals("mcts")) {
+            // Tree search by random playouts, one thread per player since the games already run in parallel
+            other = (s) -> {
+                MctsPlayer player = new MctsPlayer(1 << 18, s);
+                player.setVerbose(false);
+                player.setPlayouts(20000);
+                return player;
+            };
+        } else {
+            System.out.println("Unknown opponent: " + opponent);
+            return;
+        }
+
+        System.out.println("A: MyPlayer (alpha-beta, depth 5, incremental evaluation), B: " + opponent);
+        Tournament tournament = new Tournament(engine, other, threads, seed);
+        if (args.length > 4) {
+            try (GameLog log = GameLog.open(Paths.get(args[4]))) {
+                tournament.setLog(log);
+                System.out.println(tournament.run(games));
+            }
+        } else {
+            System.out.println(tournament.run(games));
+        }
+        System.out.println("Engine search:");
+        System.out.println(metrics.snapshot());
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Aggregated results of a Tournament between two players, A and B. Results are counted per player, not per seat, so
+ * they stay meaningful when the players alternate between moving first and second.
+ */
+public class TournamentReport {
+
+    int games;
+    int winsA;
+    int winsB;
+    int ties;
+    int forfeitsA;
+    int forfeitsB;
+    long movesA;
+    long movesB;
+    long moveNanosA;
+    long moveNanosB;
+    long elapsedNanos;
+
+    /**
+     * Adds the counts of another report to this one. Elapsed time is not added, since partial reports are played
+     * at the same time.
+     */
+    void merge(TournamentReport other) {
+        this.games += other.games;
+        this.winsA += other.winsA;
+        this.winsB += other.winsB;
+        this.ties += other.ties;
+        this.forfeitsA += other.forfeitsA;
+        this.forfeitsB += other.forfeitsB;
+        this.movesA += other.movesA;
+        this.movesB += other.movesB;
+        this.moveNanosA += other.moveNanosA;
+        this.moveNanosB += other.moveNanosB;
+    }
+
+    public int getGames() {
+        return this.games;
+    }
+
+    public int getWinsA() {
+        return this.winsA;
+    }
+
+    public int getWinsB() {
+        return this.winsB;
+    }
+
+    public int getTies() {
+        return this.ties;
+    }
+
+    public int getForfeitsA() {
+        return this.forfeitsA;
+    }
+
+    public int getForfeitsB() {
+        return this.forfeitsB;
+    }
+
+    /**
+     * Average time player A took to choose a move, in milliseconds
+     */
+    public double getAverageMoveMillisA() {
+        return this.movesA == 0 ? 0.0 : this.moveNanosA / 1e6 / this.movesA;
+    }
+
+    /**
+     * Average time player B took to choose a move, in milliseconds
+     */
+    public double getAverageMoveMillisB() {
+        return this.movesB == 0 ? 0.0 : this.moveNanosB / 1e6 / this.movesB;
+    }
+
+    public double getElapsedSeconds() {
+        return this.elapsedNanos / 1e9;
+    }
+
+    public double getGamesPerSecond() {
+        return this.elapsedNanos == 0 ? 0.0 : this.games / (this.elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Games: %d%n"
+                        + "A wins: %d (%.1f%%), B wins: %d (%.1f%%), ties: %d%n"
+                        + "A forfeits: %d, B forfeits: %d%n"
+                        + "A average move time: %.3f ms, B average move time: %.3f ms%n"
+                        + "Elapsed: %.2f s, %.1f games/sec",
+                this.games,
+                this.winsA, percent(this.winsA), this.winsB, percent(this.winsB), this.ties,
+                this.forfeitsA, this.forfeitsB,
+                this.getAverageMoveMillisA(), this.getAverageMoveMillisB(),
+                this.getElapsedSeconds(), this.getGamesPerSecond());
+    }
+
+    private double percent(int count) {
+        return this.games == 0 ? 0.0 : 100.0 * count / this.games;
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Fixed-size transposition table for the alpha-beta search. Connect Four reaches the same position through many
+ * different move orders, so the table remembers the result of every searched position: its score, how deep it was
+ * searched, whether the score is exact or only a bound, and the best move found.
+ *
+ * The table is open-addressed: a key is hashed to a bucket of BUCKET_SIZE consecutive slots, and an entry can live in
+ * any slot of its bucket. When the bucket is full the replacement policy picks the entry to evict. Entries are stored
+ * in three primitive arrays, so the table allocates nothing after it has been created.
+ *
+ * The table can be shared by several search threads without locks. Each slot stores the key XORed with the entry's
+ * data and score words; a reader that sees a slot while another thread is half way through writing it gets a key that
+ * does not match and treats the slot as a miss. Probes and hits are counted by the searches and added to the table
+ * with recordProbes(), so that the hit rate and fill rate can be used to size the table for a deployment.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TranspositionTable {
+
+    /**
+     * DEPTH_PREFERRED keeps the most deeply searched entries of a bucket and only evicts them once they are left over
+     * from an earlier search. ALWAYS_REPLACE evicts the oldest or shallowest entry of a full bucket.
+     */
+    public enum ReplacementPolicy { DEPTH_PREFERRED, ALWAYS_REPLACE }
+
+    // Bound types
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    private static final int BUCKET_SIZE = 4;
+
+    // Layout of an entry's data word
+    private static final long VALID = 1L << 32;
+    private static final int DEPTH_SHIFT = 0;
+    private static final int BOUND_SHIFT = 8;
+    private static final int MOVE_SHIFT = 12;
+    private static final int GENERATION_SHIFT = 16;
+
+    // keys[slot] holds key ^ data ^ score
+    private final long[] keys;
+    private final long[] scores;
+    private final long[] data;
+    private final int mask;
+    private final ReplacementPolicy policy;
+
+    // Incremented by newSearch(), entries from older generations can always be replaced
+    private volatile int generation;
+
+    // Counters
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Creates a table with room for at least the given number of entries (rounded up to a power of two). Every entry
+     * takes 24 bytes.
+     */
+    public TranspositionTable(int entries, ReplacementPolicy policy) {
+        int size = Math.max(BUCKET_SIZE, Integer.highestOneBit(Math.max(1, entries - 1)) << 1);
+        this.keys = new long[size];
+        this.scores = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Starts a new search. Entries stored before this call become candidates for replacement.
+     */
+    public void newSearch() {
+        this.generation = (this.generation + 1) & 0xFF;
+    }
+
+    /**
+     * Looks up key. If it is in the table, copies the entry's data word to entry[0] and its score bits to entry[1]
+     * and returns true. Use getDepth(), getBound(), getMove() and getScore() to read the copied entry.
+     */
+    public boolean probe(long key, long[] entry) {
+        int bucket = this.bucket(key);
+        for (int k=0; k<BUCKET_SIZE; k++) {
+            int slot = (bucket + k) & this.mask;
+            long word = this.data[slot];
+            long score = this.scores[slot];
+            if (word != 0 && (this.keys[slot] ^ word ^ score) == key) {
+                entry[0] = word;
+                entry[1] = score;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int getDepth(long[] entry) {
+        return (int) (entry[0] >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int getBound(long[] entry) {
+        return (int) (entry[0] >>> BOUND_SHIFT) & 0xF;
+    }
+
+    public static int getMove(long[] entry) {
+        return (int) (entry[0] >>> MOVE_SHIFT) & 0xF;
+    }
+
+    public static double getScore(long[] entry) {
+        return Double.longBitsToDouble(entry[1]);
+    }
+
+    /**
+     * Stores the result of a search, unless the replacement policy prefers the entries already in the bucket.
+     *
+     * @param key       Hash of the position
+     * @param depth     Depth the position was searched to
+     * @param bound     EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score     Score of the position for the player to move
+     * @param move      Best move found, between 0 and 15
+     */
+    public void store(long key, int depth, int bound, double score, int move) {
+        int generation = this.generation;
+        int bucket = this.bucket(key);
+        int victim = -1;
+        int victimRank = Integer.MAX_VALUE;
+        boolean found = false;
+
+        for (int k=0; k<BUCKET_SIZE; k++) {
+            int slot = (bucket + k) & this.mask;
+            long word = this.data[slot];
+            int rank;
+            if (word == 0) {
+                rank = -1;
+            } else if ((this.keys[slot] ^ word ^ this.scores[slot]) == key) {
+                victim = slot;
+                found = true;
+                break;
+            } else {
+                // Entries from older searches rank below every entry of the current search
+                rank = depthOf(word) + (generationOf(word) == generation ? 256 : 0);
+            }
+
+            if (rank < victimRank) {
+                victim = slot;
+                victimRank = rank;
+            }
+        }
+
+        long old = this.data[victim];
+        if ((found || victimRank >= 0) && this.policy == ReplacementPolicy.DEPTH_PREFERRED
+                && old != 0 && generationOf(old) == generation && depthOf(old) > depth) {
+            return;
+        }
+
+        long word = VALID
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) (move & 0xF) << MOVE_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+        long scoreBits = Double.doubleToRawLongBits(score);
+        this.keys[victim] = key ^ word ^ scoreBits;
+        this.scores[victim] = scoreBits;
+        this.data[victim] = word;
+    }
+
+    /**
+     * Adds the probes and hits counted by a search to the table's counters.
+     */
+    public void recordProbes(long probes, long hits) {
+        this.probes.addAndGet(probes);
+        this.hits.addAndGet(hits);
+    }
+
+    /**
+     * Empties the table and resets the counters. Must not be called while a search is using the table.
+     */
+    public void clear() {
+        Arrays.fill(this.data, 0);
+        this.probes.set(0);
+        this.hits.set(0);
+    }
+
+    public int getCapacity() {
+        return this.keys.length;
+    }
+
+    public long getProbes() {
+        return this.probes.get();
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Fraction of probes that found their position in the table.
+     */
+    public double getHitRate() {
+        long probes = this.probes.get();
+        return probes == 0 ? 0.0 : (double) this.hits.get() / probes;
+    }
+
+    /**
+     * Fraction of slots that hold an entry. This scans the table, so it is meant for reporting, not for searching.
+     */
+    public double getFillRate() {
+        int filled = 0;
+        for (long word : this.data) {
+            if (word != 0) {
+                filled++;
+            }
+        }
+        return (double) filled / this.keys.length;
+    }
+
+    private static int depthOf(long word) {
+        return (int) (word >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    private static int generationOf(long word) {
+        return (int) (word >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    private int bucket(long key) {
+        // Mix the high bits in, so tables of any size use all of the key
+        long h = key ^ (key >>> 32);
+        return (int) h & this.mask;
+    }
+}
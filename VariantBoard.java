@@ -0,0 +1,238 @@
+/**
+ * Board for any BoardGeometry, used for variants such as 6x7, 8x8 or connect-5. The public API is Board's, with the
+ * dimensions of the geometry instead of BOARD_SIZE: getBoard() returns a rows x columns array and moves are columns
+ * 0 to columns - 1.
+ *
+ * The tiles are kept in a flat array with the height of every column. When the geometry fits in a long, each player's
+ * tiles are also kept in a bit mask and a win is found with shifts like BitBoard does; otherwise only the windows of
+ * the geometry through the last move are checked.
+ */
+
+import java.util.Arrays;
+
+public class VariantBoard extends Board {
+
+    private final BoardGeometry geometry;
+    private final int rows;
+    private final int columns;
+    private final boolean useMasks;
+
+    // Shift distances between neighbouring cells in a mask: vertical, horizontal, diagonal and anti-diagonal
+    private final int[] shifts;
+
+    // cells[row * columns + column]
+    private final int[] cells;
+    private final int[] heights;
+    private int tileCount;
+
+    // Tiles of player 1 and of player 2, only kept if the geometry fits in a long
+    private long player1Tiles;
+    private long player2Tiles;
+
+    // Lazily materialized 2D view returned by getBoard()
+    private int[][] view;
+    private boolean viewStale;
+
+    /**
+     * Initializes an empty board of the given geometry
+     */
+    public VariantBoard(BoardGeometry geometry) {
+        super((int[]) null);
+        this.geometry = geometry;
+        this.rows = geometry.getRows();
+        this.columns = geometry.getColumns();
+        this.useMasks = geometry.fitsInLong();
+        this.shifts = new int[] {1, this.rows + 1, this.rows + 2, this.rows};
+        this.cells = new int[this.rows * this.columns];
+        this.heights = new int[this.columns];
+        this.viewStale = true;
+    }
+
+    @Override
+    public BoardGeometry getGeometry() {
+        return this.geometry;
+    }
+
+    /**
+     * Overwrites this board with the tiles of another board of the same geometry.
+     *
+     * @throws IllegalArgumentException if toCopy has a different geometry
+     */
+    @Override
+    public void copyFrom(Board toCopy) {
+        if (!this.geometry.equals(toCopy.getGeometry())) {
+            throw new IllegalArgumentException("Cannot copy a " + toCopy.getGeometry() + " board into a "
+                    + this.geometry + " board");
+        }
+        this.viewStale = true;
+        if (toCopy instanceof VariantBoard) {
+            VariantBoard other = (VariantBoard) toCopy;
+            System.arraycopy(other.cells, 0, this.cells, 0, this.cells.length);
+            System.arraycopy(other.heights, 0, this.heights, 0, this.columns);
+            this.tileCount = other.tileCount;
+            this.player1Tiles = other.player1Tiles;
+            this.player2Tiles = other.player2Tiles;
+            this.hash = other.hash;
+            this.mirrorHash = other.mirrorHash;
+            return;
+        }
+
+        Arrays.fill(this.cells, 0);
+        Arrays.fill(this.heights, 0);
+        this.tileCount = 0;
+        this.player1Tiles = 0;
+        this.player2Tiles = 0;
+        this.hash = 0;
+        this.mirrorHash = 0;
+        int[][] other = toCopy.getBoard();
+        for (int j=0; j<this.columns; j++) {
+            for (int i=0; i<this.rows && other[i][j] != 0; i++) {
+                this.move(other[i][j], j);
+            }
+        }
+    }
+
+    @Override
+    public Board mirror() {
+        VariantBoard mirrored = new VariantBoard(this.geometry);
+        for (int j=0; j<this.columns; j++) {
+            for (int i=0; i<this.heights[j]; i++) {
+                mirrored.move(this.cells[i * this.columns + j], this.columns - 1 - j);
+            }
+        }
+        return mirrored;
+    }
+
+    /**
+     * Returns the board as a rows x columns array, board[row][column] with row 0 at the bottom. The array is shared
+     * between calls and is rebuilt only after the board changes, so it must be treated as read-only.
+     */
+    @Override
+    public int[][] getBoard() {
+        if (this.view == null) {
+            this.view = new int[this.rows][this.columns];
+        }
+        if (this.viewStale) {
+            for (int i=0; i<this.rows; i++) {
+                System.arraycopy(this.cells, i * this.columns, this.view[i], 0, this.columns);
+            }
+            this.viewStale = false;
+        }
+        return this.view;
+    }
+
+    @Override
+    public boolean isColumnOpen(int column) {
+        return column >= 0 && column < this.columns && this.heights[column] < this.rows;
+    }
+
+    @Override
+    public boolean move(int player, int column) {
+        if (!this.isColumnOpen(column)) {
+            return false;
+        }
+
+        int row = this.heights[column]++;
+        this.cells[row * this.columns + column] = player;
+        this.tileCount++;
+        if (this.useMasks) {
+            if (player == 1) {
+                this.player1Tiles |= this.geometry.bit(row, column);
+            } else {
+                this.player2Tiles |= this.geometry.bit(row, column);
+            }
+        }
+        this.hash ^= this.geometry.key(player, row, column);
+        this.mirrorHash ^= this.geometry.mirrorKey(player, row, column);
+        this.viewStale = true;
+        if (this.listener != null) {
+            this.listener.tilePlaced(player, row, column);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean undoMove(int column) {
+        if (column < 0 || column >= this.columns || this.heights[column] == 0) {
+            return false;
+        }
+
+        int row = --this.heights[column];
+        int player = this.cells[row * this.columns + column];
+        this.cells[row * this.columns + column] = 0;
+        this.tileCount--;
+        if (this.useMasks) {
+            this.player1Tiles &= ~this.geometry.bit(row, column);
+            this.player2Tiles &= ~this.geometry.bit(row, column);
+        }
+        this.hash ^= this.geometry.key(player, row, column);
+        this.mirrorHash ^= this.geometry.mirrorKey(player, row, column);
+        this.viewStale = true;
+        if (this.listener != null) {
+            this.listener.tileRemoved(player, row, column);
+        }
+        return true;
+    }
+
+    /**
+     * Returns -1 if the game is not over, 0 for a tie, or the number of the player who won with the tile on top of
+     * lastMoveColumn. Returns -1 if lastMoveColumn is empty or out of range.
+     *
+     * @see Board#checkIfGameOver(int)
+     */
+    @Override
+    public int checkIfGameOver(int lastMoveColumn) {
+        if (lastMoveColumn < 0 || lastMoveColumn >= this.columns || this.heights[lastMoveColumn] == 0) {
+            return -1;
+        }
+
+        int row = this.heights[lastMoveColumn] - 1;
+        int player = this.cells[row * this.columns + lastMoveColumn];
+        boolean won;
+        if (this.useMasks) {
+            won = this.hasConnection(player == 1 ? this.player1Tiles : this.player2Tiles);
+        } else {
+            won = this.windowFilled(player, row * this.columns + lastMoveColumn);
+        }
+        if (won) {
+            return player;
+        }
+
+        return this.tileCount == this.cells.length ? 0 : -1;
+    }
+
+    /*
+     * Returns true if the tiles contain a line of the geometry's connect length in any direction.
+     */
+    private boolean hasConnection(long tiles) {
+        int connect = this.geometry.getConnect();
+        for (int shift : this.shifts) {
+            long run = tiles;
+            for (int k=1; k<connect && run != 0; k++) {
+                run &= tiles >>> (k * shift);
+            }
+            if (run != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns true if one of the windows through cell only holds player's tiles.
+     */
+    private boolean windowFilled(int player, int cell) {
+        int connect = this.geometry.getConnect();
+        for (int k=0; k<this.geometry.getCellWindowCount(cell); k++) {
+            int w = this.geometry.getCellWindow(cell, k);
+            int c = 0;
+            while (c < connect && this.cells[this.geometry.getWindowCell(w, c)] == player) {
+                c++;
+            }
+            if (c == connect) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
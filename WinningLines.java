@@ -0,0 +1,82 @@
+/**
+ * Every window of CONNECT_GOAL cells in a row (horizontal, vertical, diagonal or anti-diagonal) on the board, built
+ * once when the class is loaded. A window is stored both as a list of cells (row * BOARD_SIZE + column) and as a bit
+ * mask in BitBoard's layout, and every cell has an index of the windows through it, so a win check only has to test
+ * the few windows that touch the last move:
+ *
+ *   (tiles & getMask(w)) == getMask(w)
+ *
+ * The table is read-only; the accessors return single values so callers cannot change it. It is the same table as
+ * BoardGeometry.STANDARD's, kept in static arrays for the board classes' fast paths.
+ */
+
+public final class WinningLines {
+
+    private static final int SIZE = Board.BOARD_SIZE;
+    private static final int GOAL = Board.CONNECT_GOAL;
+
+    // Cells of every window, as row * SIZE + column, and the same cells as a BitBoard mask
+    private static final int[][] WINDOW_CELLS = BoardGeometry.windowCells(SIZE, SIZE, GOAL);
+    private static final long[] WINDOW_MASKS = BoardGeometry.windowMasks(WINDOW_CELLS, SIZE, SIZE);
+
+    // Windows through every cell
+    private static final int[][] CELL_WINDOWS = BoardGeometry.cellWindows(WINDOW_CELLS, SIZE * SIZE);
+
+    private WinningLines() {
+    }
+
+    /**
+     * Returns the number of windows on the board.
+     */
+    public static int getWindowCount() {
+        return WINDOW_CELLS.length;
+    }
+
+    /**
+     * Returns the cells of window w as a BitBoard mask.
+     */
+    public static long getMask(int w) {
+        return WINDOW_MASKS[w];
+    }
+
+    /**
+     * Returns the k-th cell (0 to CONNECT_GOAL - 1) of window w as row * BOARD_SIZE + column.
+     */
+    public static int getCell(int w, int k) {
+        return WINDOW_CELLS[w][k];
+    }
+
+    /**
+     * Returns the number of windows through a cell, given as row * BOARD_SIZE + column.
+     */
+    public static int getWindowCount(int cell) {
+        return CELL_WINDOWS[cell].length;
+    }
+
+    /**
+     * Returns the k-th window through a cell.
+     */
+    public static int getWindow(int cell, int k) {
+        return CELL_WINDOWS[cell][k];
+    }
+
+    /**
+     * Returns true if tiles, a BitBoard mask, fill a window through the cell at row and column.
+     */
+    public static boolean isWin(long tiles, int row, int column) {
+        for (int w : CELL_WINDOWS[row * SIZE + column]) {
+            long mask = WINDOW_MASKS[w];
+            if ((tiles & mask) == mask) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the BitBoard bit of the cell at row and column.
+     */
+    public static long bit(int row, int column) {
+        return 1L << (column * BitBoard.COLUMN_BITS + row);
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Random keys for Zobrist hashing of Connect Four positions. The hash of a board is the XOR of the key of every tile
+ * on it, so placing or removing a single tile updates the hash with one XOR. Board and BitBoard keep their hash up to
+ * date in move() and undoMove(); the empty board hashes to 0.
+ *
+ * The keys are generated from a fixed seed, so hashes are the same in every JVM and can be stored on disk.
+ */
+
+import java.util.SplittableRandom;
+
+public class Zobrist {
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    // KEYS[player - 1][row * BOARD_SIZE + column]
+    private static final long[][] KEYS = createKeys();
+
+    // Mixed into search keys when player 2 is to move
+    public static final long PLAYER_2_TO_MOVE = new SplittableRandom(SEED ^ 2).nextLong();
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a tile. Any player number other than 1 uses player 2's keys, matching BitBoard.
+     */
+    public static long key(int player, int row, int column) {
+        return KEYS[player == 1 ? 0 : 1][row * Board.BOARD_SIZE + column];
+    }
+
+    /**
+     * Returns the key of the tile's mirror image, the tile in the same row of the opposite column.
+     */
+    public static long mirrorKey(int player, int row, int column) {
+        return KEYS[player == 1 ? 0 : 1][row * Board.BOARD_SIZE + Board.BOARD_SIZE - 1 - column];
+    }
+
+    private static long[][] createKeys() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[][] keys = new long[2][Board.BOARD_SIZE * Board.BOARD_SIZE];
+        for (long[] playerKeys : keys) {
+            for (int i=0; i<playerKeys.length; i++) {
+                playerKeys[i] = random.nextLong();
+            }
+        }
+        return keys;
+    }
+}